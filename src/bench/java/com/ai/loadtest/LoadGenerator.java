@@ -0,0 +1,316 @@
+package com.ai.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator for /api/chat, /api/mcq and /api/performance.
+ *
+ * Requests are fired on a fixed schedule at the target RPS regardless of how fast the service
+ * answers, and latency is measured from each request's intended start — so queueing inside
+ * the service shows up in the percentiles instead of silently lowering the offered load.
+ *
+ *   ./mvnw -Pbench test-compile exec:exec@loadtest -Dloadtest.args="--rps=50 --duration=60s"
+ *
+ * Options: --target (http://127.0.0.1:9192), --rps (20), --duration (30s), --warmup (5s),
+ * --mix (chat:6,mcq:1,performance:3), --sessions (100), --timeout (60s),
+ * --max-in-flight (2000), --out (target/loadtest-result.json).
+ */
+public class LoadGenerator {
+
+    private static final String[] CHAT_PROMPTS = {
+            "Explain the difference between an interface and an abstract class in Java.",
+            "What is the time complexity of a HashMap lookup?",
+            "How does garbage collection work in the JVM?",
+            "Find me a video tutorial on Spring Boot.",
+            "What are the latest features in Java 21?",
+            "Give me three tips for writing clean code.",
+    };
+    private static final String[] TOPICS = {"Java", "Python", "Data Structures", "Operating Systems", "SQL"};
+    private static final String[] DIFFICULTIES = {"easy", "medium", "hard"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client;
+    private final URI target;
+    private final Duration timeout;
+    private final int sessions;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final List<Scenario> mix;
+
+    public LoadGenerator(URI target, Duration timeout, int sessions, int maxInFlight, List<Scenario> mix) {
+        this.client      = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.target      = target;
+        this.timeout     = timeout;
+        this.sessions    = sessions;
+        this.maxInFlight = maxInFlight;
+        this.inFlight    = new Semaphore(maxInFlight);
+        this.mix         = mix;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = Args.parse(args);
+
+        LoadGenerator generator = new LoadGenerator(
+                URI.create(opts.getOrDefault("target", "http://127.0.0.1:9192")),
+                Args.duration(opts.getOrDefault("timeout", "60s")),
+                Integer.parseInt(opts.getOrDefault("sessions", "100")),
+                Integer.parseInt(opts.getOrDefault("max-in-flight", "2000")),
+                Scenario.parseMix(opts.getOrDefault("mix", "chat:6,mcq:1,performance:3"))
+        );
+        double rps        = Double.parseDouble(opts.getOrDefault("rps", "20"));
+        Duration warmup   = Args.duration(opts.getOrDefault("warmup", "5s"));
+        Duration duration = Args.duration(opts.getOrDefault("duration", "30s"));
+
+        if (!warmup.isZero()) {
+            System.out.printf("Warming up for %ds at %.1f rps...%n", warmup.toSeconds(), rps);
+            generator.run(rps, warmup);
+        }
+        System.out.printf("Measuring for %ds at %.1f rps against %s...%n", duration.toSeconds(), rps, generator.target);
+        Report report = generator.run(rps, duration);
+
+        report.print(System.out);
+        Path out = Path.of(opts.getOrDefault("out", "target/loadtest-result.json"));
+        report.write(generator.objectMapper, out);
+        System.out.println("Results written to " + out);
+    }
+
+    // ── Open-loop Driver ─────────────────────────────────────────────────────────
+    public Report run(double rps, Duration duration) throws InterruptedException {
+        Map<Scenario, Recorder> recorders = new EnumMap<>(Scenario.class);
+        for (Scenario s : mix) recorders.putIfAbsent(s, new Recorder());
+
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rps);
+        long start = System.nanoTime();
+        long end   = start + duration.toNanos();
+        long next  = start;
+
+        while (next < end) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+
+            Scenario scenario = mix.get(ThreadLocalRandom.current().nextInt(mix.size()));
+            Recorder recorder = recorders.get(scenario);
+            long intended = next;
+            next += intervalNanos;
+
+            // The client itself must not become the bottleneck — count what it had to drop
+            if (!inFlight.tryAcquire()) {
+                recorder.dropped();
+                continue;
+            }
+            client.sendAsync(request(scenario), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        inFlight.release();
+                        long latency = System.nanoTime() - intended;
+                        if (error != null) recorder.failed(latency);
+                        else recorder.completed(response.statusCode(), latency);
+                    });
+        }
+
+        // Drain what's still outstanding before reporting
+        long drainDeadline = System.nanoTime() + timeout.toNanos();
+        while (inFlight.availablePermits() < maxInFlight && System.nanoTime() < drainDeadline) {
+            Thread.sleep(50);
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        return new Report(rps, duration, elapsedSeconds, recorders);
+    }
+
+    private HttpRequest request(Scenario scenario) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<String, String> body = new HashMap<>();
+        body.put("sessionId", "load-" + random.nextInt(sessions));
+
+        switch (scenario) {
+            case CHAT -> body.put("prompt", CHAT_PROMPTS[random.nextInt(CHAT_PROMPTS.length)]);
+            case MCQ -> {
+                body.put("topic", TOPICS[random.nextInt(TOPICS.length)]);
+                body.put("count", random.nextBoolean() ? "5" : "10");
+                body.put("difficulty", DIFFICULTIES[random.nextInt(DIFFICULTIES.length)]);
+            }
+            case PERFORMANCE -> {
+                int total = 10;
+                body.put("topic", TOPICS[random.nextInt(TOPICS.length)]);
+                body.put("total", String.valueOf(total));
+                body.put("correct", String.valueOf(random.nextInt(total + 1)));
+                body.put("difficulty", DIFFICULTIES[random.nextInt(DIFFICULTIES.length)]);
+                body.put("timePerQuestion", String.valueOf(15 + random.nextInt(45)));
+            }
+        }
+
+        try {
+            return HttpRequest.newBuilder(target.resolve(scenario.path))
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ── Scenarios ────────────────────────────────────────────────────────────────
+    public enum Scenario {
+        CHAT("/api/chat"),
+        MCQ("/api/mcq"),
+        PERFORMANCE("/api/performance");
+
+        final String path;
+
+        Scenario(String path) {
+            this.path = path;
+        }
+
+        // "chat:6,mcq:1,performance:3" -> a weighted pick list
+        static List<Scenario> parseMix(String spec) {
+            List<Scenario> mix = new ArrayList<>();
+            for (String part : spec.split(",")) {
+                String[] kv = part.trim().split(":");
+                Scenario scenario = valueOf(kv[0].trim().toUpperCase());
+                int weight = kv.length > 1 ? Integer.parseInt(kv[1].trim()) : 1;
+                for (int i = 0; i < weight; i++) mix.add(scenario);
+            }
+            if (mix.isEmpty()) throw new IllegalArgumentException("Empty --mix");
+            return mix;
+        }
+    }
+
+    // ── Recording ────────────────────────────────────────────────────────────────
+    static final class Recorder {
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private int ok;
+        private int rejected;
+        private int serverErrors;
+        private int otherStatus;
+        private int failures;
+        private int dropped;
+
+        synchronized void completed(int status, long latencyNanos) {
+            record(latencyNanos);
+            if (status >= 200 && status < 300) ok++;
+            else if (status == 429) rejected++;
+            else if (status >= 500) serverErrors++;
+            else otherStatus++;
+        }
+
+        synchronized void failed(long latencyNanos) {
+            record(latencyNanos);
+            failures++;
+        }
+
+        synchronized void dropped() {
+            dropped++;
+        }
+
+        private void record(long latencyNanos) {
+            if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+            latencies[count++] = latencyNanos;
+        }
+
+        synchronized Map<String, Object> summary(double elapsedSeconds) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("requests", count);
+            m.put("ok", ok);
+            m.put("rejected429", rejected);
+            m.put("serverErrors", serverErrors);
+            m.put("otherStatus", otherStatus);
+            m.put("failures", failures);
+            m.put("droppedByClient", dropped);
+            m.put("throughputRps", round(ok / elapsedSeconds));
+            m.put("p50Ms", millis(percentile(sorted, 0.50)));
+            m.put("p95Ms", millis(percentile(sorted, 0.95)));
+            m.put("p99Ms", millis(percentile(sorted, 0.99)));
+            m.put("maxMs", millis(count == 0 ? 0 : sorted[count - 1]));
+            return m;
+        }
+
+        static Recorder merge(Collection<Recorder> recorders) {
+            Recorder all = new Recorder();
+            for (Recorder r : recorders) {
+                synchronized (r) {
+                    for (int i = 0; i < r.count; i++) all.record(r.latencies[i]);
+                    all.ok           += r.ok;
+                    all.rejected     += r.rejected;
+                    all.serverErrors += r.serverErrors;
+                    all.otherStatus  += r.otherStatus;
+                    all.failures     += r.failures;
+                    all.dropped      += r.dropped;
+                }
+            }
+            return all;
+        }
+
+        private static long percentile(long[] sorted, double p) {
+            if (sorted.length == 0) return 0;
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+        }
+
+        private static double millis(long nanos) {
+            return round(nanos / 1e6);
+        }
+
+        private static double round(double v) {
+            return Math.round(v * 10) / 10.0;
+        }
+    }
+
+    // ── Report ───────────────────────────────────────────────────────────────────
+    public record Report(double targetRps, Duration duration, double elapsedSeconds,
+                         Map<Scenario, Recorder> recorders) {
+
+        Map<String, Object> toMap() {
+            Map<String, Object> endpoints = new LinkedHashMap<>();
+            recorders.forEach((s, r) -> endpoints.put(s.path, r.summary(elapsedSeconds)));
+
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("targetRps", targetRps);
+            m.put("durationSeconds", duration.toSeconds());
+            m.put("total", Recorder.merge(recorders.values()).summary(elapsedSeconds));
+            m.put("endpoints", endpoints);
+            return m;
+        }
+
+        void print(PrintStream out) {
+            out.printf("%n%-18s %8s %8s %6s %6s %6s %9s %9s %9s %9s %9s%n",
+                    "endpoint", "requests", "ok", "429", "5xx", "fail", "ok/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+            recorders.forEach((s, r) -> printRow(out, s.path, r.summary(elapsedSeconds)));
+            printRow(out, "total", Recorder.merge(recorders.values()).summary(elapsedSeconds));
+        }
+
+        private static void printRow(PrintStream out, String name, Map<String, Object> m) {
+            out.printf("%-18s %8s %8s %6s %6s %6s %9s %9s %9s %9s %9s%n",
+                    name, m.get("requests"), m.get("ok"), m.get("rejected429"), m.get("serverErrors"),
+                    (int) m.get("failures") + (int) m.get("droppedByClient"), m.get("throughputRps"),
+                    m.get("p50Ms"), m.get("p95Ms"), m.get("p99Ms"), m.get("maxMs"));
+        }
+
+        void write(ObjectMapper objectMapper, Path path) throws IOException {
+            if (path.getParent() != null) Files.createDirectories(path.getParent());
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(path.toFile(), toMap());
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.ai.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for OpenRouter, Google Custom Search and YouTube search, so the service can
+ * be load-tested without real API credits. Speaks the same JSON shapes the app parses:
+ *
+ *   POST /api/v1/chat/completions   chat completions, incl. tool_calls and SSE streaming
+ *   GET  /customsearch/v1           Custom Search "items"
+ *   GET  /youtube/v3/search         YouTube search "items"
+ *
+ * Latency per call is log-normal, given by its median and p99; a configurable fraction of
+ * calls fails with 429 (with Retry-After) or 503. Run the app with the "loadtest" profile to
+ * point every upstream URL here:
+ *
+ *   ./mvnw -Pbench test-compile exec:exec@stand-in -Dstandin.args="--latency-median=400ms --error-rate=0.02"
+ */
+public class StandInServer {
+
+    private static final Pattern MCQ_COUNT = Pattern.compile("Generate exactly (\\d+) MCQ");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong ids = new AtomicLong();
+
+    private final Latency chatLatency;
+    private final Latency searchLatency;
+    private final long tokenDelayMs;
+    private final double errorRate;
+
+    public StandInServer(Latency chatLatency, Latency searchLatency, long tokenDelayMs, double errorRate) {
+        this.chatLatency   = chatLatency;
+        this.searchLatency = searchLatency;
+        this.tokenDelayMs  = tokenDelayMs;
+        this.errorRate     = errorRate;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> opts = Args.parse(args);
+        int port = Integer.parseInt(opts.getOrDefault("port", "8999"));
+
+        StandInServer server = new StandInServer(
+                new Latency(Args.millis(opts.getOrDefault("latency-median", "400ms")),
+                            Args.millis(opts.getOrDefault("latency-p99", "2500ms"))),
+                new Latency(Args.millis(opts.getOrDefault("search-latency-median", "120ms")),
+                            Args.millis(opts.getOrDefault("search-latency-p99", "800ms"))),
+                Args.millis(opts.getOrDefault("token-delay", "15ms")),
+                Double.parseDouble(opts.getOrDefault("error-rate", "0.0"))
+        );
+        server.start(port);
+        System.out.printf("Stand-in upstream listening on http://127.0.0.1:%d (chat %s, search %s, error rate %.3f)%n",
+                port, server.chatLatency, server.searchLatency, server.errorRate);
+    }
+
+    public HttpServer start(int port) throws IOException {
+        HttpServer http = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        // Simulated latency parks a thread per call, so the pool has to cover the peak in-flight count
+        ExecutorService executor = Executors.newCachedThreadPool();
+        http.setExecutor(executor);
+        http.createContext("/api/v1/chat/completions", this::chatCompletions);
+        http.createContext("/customsearch/v1", this::googleSearch);
+        http.createContext("/youtube/v3/search", this::youtubeSearch);
+        http.start();
+        return http;
+    }
+
+    // ── Chat Completions ─────────────────────────────────────────────────────────
+    private void chatCompletions(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            if (injectFailure(exchange)) return;
+
+            JsonNode messages = request.path("messages");
+            String system     = messages.path(0).path("content").asText("");
+            JsonNode last     = messages.path(messages.size() - 1);
+            boolean stream    = request.path("stream").asBoolean(false);
+
+            String toolName = null;
+            if (request.has("tools") && !"tool".equals(last.path("role").asText())) {
+                toolName = toolFor(last.path("content").asText(""));
+            }
+
+            String content;
+            if (system.contains("MCQ question generator")) {
+                content = mcqReply(last.path("content").asText(""));
+            } else if ("tool".equals(last.path("role").asText())) {
+                content = "Based on the tool result: " + preview(last.path("content").asText(""));
+            } else if (system.contains("performance coach")) {
+                content = PERFORMANCE_REPLY;
+            } else {
+                content = GENERAL_REPLY;
+            }
+
+            if (stream) {
+                streamReply(exchange, content, toolName);
+            } else {
+                sleep(chatLatency.sample());
+                sendJson(exchange, 200, completion(content, toolName));
+            }
+        }
+    }
+
+    private ObjectNode completion(String content, String toolName) {
+        ObjectNode root = objectMapper.createObjectNode();
+        root.put("id", "gen-" + ids.incrementAndGet());
+        root.put("model", "stand-in/gpt-3.5-turbo");
+        ObjectNode choice = root.putArray("choices").addObject();
+        ObjectNode message = choice.putObject("message");
+        message.put("role", "assistant");
+        if (toolName != null) {
+            message.putNull("content");
+            message.set("tool_calls", toolCalls(toolName));
+            choice.put("finish_reason", "tool_calls");
+        } else {
+            message.put("content", content);
+            choice.put("finish_reason", "stop");
+        }
+        root.set("usage", usage(toolName != null ? 12 : tokens(content)));
+        return root;
+    }
+
+    private void streamReply(HttpExchange exchange, String content, String toolName) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+
+        // Time to first token is the sampled latency; the rest is paced per token
+        sleep(chatLatency.sample());
+        out.write(": OPENROUTER PROCESSING\n\n".getBytes(StandardCharsets.UTF_8));
+
+        if (toolName != null) {
+            ObjectNode delta = objectMapper.createObjectNode();
+            delta.set("tool_calls", toolCalls(toolName));
+            writeChunk(out, delta, null);
+            writeChunk(out, objectMapper.createObjectNode(), "tool_calls");
+        } else {
+            for (String token : content.split("(?<= )")) {
+                writeChunk(out, objectMapper.createObjectNode().put("content", token), null);
+                sleep(tokenDelayMs);
+            }
+            writeChunk(out, objectMapper.createObjectNode(), "stop");
+        }
+
+        ObjectNode usageChunk = objectMapper.createObjectNode();
+        usageChunk.putArray("choices");
+        usageChunk.set("usage", usage(tokens(content)));
+        writeEvent(out, usageChunk);
+        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private void writeChunk(OutputStream out, ObjectNode delta, String finishReason) throws IOException {
+        ObjectNode chunk = objectMapper.createObjectNode();
+        ObjectNode choice = chunk.putArray("choices").addObject();
+        choice.set("delta", delta);
+        if (finishReason != null) choice.put("finish_reason", finishReason);
+        writeEvent(out, chunk);
+    }
+
+    private void writeEvent(OutputStream out, JsonNode data) throws IOException {
+        out.write(("data: " + objectMapper.writeValueAsString(data) + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private ArrayNode toolCalls(String toolName) {
+        ArrayNode calls = objectMapper.createArrayNode();
+        ObjectNode call = calls.addObject();
+        call.put("index", 0);
+        call.put("id", "call_" + ids.incrementAndGet());
+        call.put("type", "function");
+        ObjectNode function = call.putObject("function");
+        function.put("name", toolName);
+        function.put("arguments", "getCurrentDateTime".equals(toolName) ? "{}" : "{\"query\":\"java streams tutorial\"}");
+        return calls;
+    }
+
+    private ObjectNode usage(int completionTokens) {
+        ObjectNode usage = objectMapper.createObjectNode();
+        int prompt = 200 + ThreadLocalRandom.current().nextInt(600);
+        usage.put("prompt_tokens", prompt);
+        usage.put("completion_tokens", completionTokens);
+        usage.put("total_tokens", prompt + completionTokens);
+        return usage;
+    }
+
+    // Same trigger words a real model would reasonably route to each tool
+    private static String toolFor(String prompt) {
+        String p = prompt.toLowerCase();
+        if (p.contains("video") || p.contains("youtube")) return "youtubeSearch";
+        if (p.contains("latest") || p.contains("news") || p.contains("search")) return "googleSearch";
+        if (p.contains("time") || p.contains("date") || p.contains("today")) return "getCurrentDateTime";
+        return null;
+    }
+
+    private String mcqReply(String prompt) throws IOException {
+        Matcher m = MCQ_COUNT.matcher(prompt);
+        int count = m.find() ? Integer.parseInt(m.group(1)) : 5;
+        ArrayNode questions = objectMapper.createArrayNode();
+        for (int i = 1; i <= count; i++) {
+            ObjectNode q = questions.addObject();
+            q.put("questionNo", i);
+            q.put("question", "Which statement about the topic is true? (" + i + ")");
+            ObjectNode options = q.putObject("options");
+            options.put("A", "The first option");
+            options.put("B", "The second option");
+            options.put("C", "The third option");
+            options.put("D", "The fourth option");
+            q.put("correctAnswer", "ABCD".substring(i % 4, i % 4 + 1));
+            q.put("explanation", "A short explanation of why this answer is correct.");
+        }
+        return "```json\n" + objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(questions) + "\n```";
+    }
+
+    // ── Search APIs ──────────────────────────────────────────────────────────────
+    private void googleSearch(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (injectFailure(exchange)) return;
+            sleep(searchLatency.sample());
+            String q = query(exchange).getOrDefault("q", "");
+
+            ObjectNode root = objectMapper.createObjectNode();
+            ArrayNode items = root.putArray("items");
+            for (int i = 1; i <= 3; i++) {
+                ObjectNode item = items.addObject();
+                item.put("title", "Result " + i + " for " + q);
+                item.put("snippet", "A representative search snippet describing result " + i + ".");
+                item.put("link", "https://example.com/" + i);
+            }
+            sendJson(exchange, 200, root);
+        }
+    }
+
+    private void youtubeSearch(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (injectFailure(exchange)) return;
+            sleep(searchLatency.sample());
+            String q = query(exchange).getOrDefault("q", "");
+
+            ObjectNode root = objectMapper.createObjectNode();
+            ArrayNode items = root.putArray("items");
+            for (int i = 1; i <= 3; i++) {
+                ObjectNode item = items.addObject();
+                item.putObject("id").put("videoId", "vid" + i);
+                ObjectNode snippet = item.putObject("snippet");
+                snippet.put("title", "Video " + i + ": " + q);
+                snippet.put("channelTitle", "Stand-in Channel");
+                snippet.put("description", "A representative video description.");
+                snippet.put("publishedAt", "2024-01-0" + i + "T00:00:00Z");
+            }
+            sendJson(exchange, 200, root);
+        }
+    }
+
+    // ── Helpers ──────────────────────────────────────────────────────────────────
+    private boolean injectFailure(HttpExchange exchange) throws IOException {
+        if (errorRate <= 0 || ThreadLocalRandom.current().nextDouble() >= errorRate) return false;
+        sleep(chatLatency.median / 4);
+        ObjectNode body = objectMapper.createObjectNode();
+        if (ThreadLocalRandom.current().nextBoolean()) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            body.putObject("error").put("message", "Rate limit exceeded").put("code", 429);
+            sendJson(exchange, 429, body);
+        } else {
+            body.putObject("error").put("message", "Upstream unavailable").put("code", 503);
+            sendJson(exchange, 503, body);
+        }
+        return true;
+    }
+
+    private void sendJson(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) return params;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(pair.substring(0, eq), URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static int tokens(String content) {
+        return Math.max(1, content.length() / 4);
+    }
+
+    private static String preview(String text) {
+        return text.length() > 80 ? text.substring(0, 80) + "..." : text;
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Log-normal latency fixed by its median and p99 (z = 2.326 at the 99th percentile). */
+    public record Latency(long median, long p99) {
+
+        long sample() {
+            if (median <= 0) return 0;
+            double sigma = Math.log(Math.max(p99, median) / (double) median) / 2.326;
+            Random random = ThreadLocalRandom.current();
+            return Math.round(median * Math.exp(sigma * random.nextGaussian()));
+        }
+
+        @Override
+        public String toString() {
+            return "p50=" + median + "ms p99=" + p99 + "ms";
+        }
+    }
+
+    private static final String GENERAL_REPLY =
+            "Java streams let you process collections declaratively. Intermediate operations such as "
+                    + "map and filter are lazy, and nothing runs until a terminal operation like collect "
+                    + "or forEach is invoked. Prefer streams for readable transformations and plain loops "
+                    + "for hot paths that need early exit or index access.";
+
+    private static final String PERFORMANCE_REPLY =
+            "Overall Assessment: a solid attempt with room to grow. Strengths: you handled the core "
+                    + "concepts well. Weak Areas: edge cases and timing under pressure. Study Plan: review "
+                    + "the fundamentals for thirty minutes a day and take one timed quiz every other day. "
+                    + "Motivational Message: steady practice compounds - keep going!";
+}
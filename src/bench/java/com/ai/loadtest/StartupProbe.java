@@ -0,0 +1,209 @@
+package com.ai.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Repeatable cold-start measurement: launches the packaged app N times and records, per run,
+ * how long until it serves traffic and what the first requests cost.
+ *
+ *   ready          launch → first 200 from /actuator/health (what an autoscaler waits for)
+ *   springStarted  "Started ... in X seconds" as Spring reports it
+ *   firstChat      first /api/chat after ready — includes lazy class loading and JIT warm-up
+ *   secondChat     the same request again, for comparison
+ *   firstMcq       first /api/mcq after ready
+ *
+ * Upstreams are served by an in-process {@link StandInServer} with a fixed 20 ms latency and
+ * the app runs with the "loadtest" profile, so runs are comparable and need no credentials.
+ *
+ *   ./mvnw -Pbench test-compile exec:exec@startup -Dstartup.args="--label=baseline"
+ *   ./mvnw -Pbench test-compile exec:exec@startup -Dstartup.args="--label=faststart --profiles=faststart
+ *         --jar=target/extracted/Openrouter-0.0.1-SNAPSHOT.jar
+ *         --jvm-args=-XX:SharedArchiveFile=target/app.jsa,-Dspring.aot.enabled=true"
+ *
+ * Options: --jar (target/Openrouter-0.0.1-SNAPSHOT.jar), --runs (5), --port (9192),
+ * --profiles (extra Spring profiles, comma-separated), --jvm-args (comma-separated),
+ * --stand-in-port (8999), --timeout (120s), --label (default), --out (target/startup-&lt;label&gt;.json).
+ */
+public class StartupProbe {
+
+    private static final Pattern STARTED = Pattern.compile("Started \\w+ in ([\\d.]+) seconds");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+
+    private final List<String> command;
+    private final URI base;
+    private final Duration timeout;
+    private final Path logDir;
+
+    public StartupProbe(List<String> command, int port, Duration timeout, Path logDir) {
+        this.command = command;
+        this.base    = URI.create("http://127.0.0.1:" + port);
+        this.timeout = timeout;
+        this.logDir  = logDir;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = Args.parse(args);
+        String label  = opts.getOrDefault("label", "default");
+        int runs      = Integer.parseInt(opts.getOrDefault("runs", "5"));
+        int port      = Integer.parseInt(opts.getOrDefault("port", "9192"));
+        Path jar      = Path.of(opts.getOrDefault("jar", "target/Openrouter-0.0.1-SNAPSHOT.jar"));
+        Path out      = Path.of(opts.getOrDefault("out", "target/startup-" + label + ".json"));
+
+        String profiles = "loadtest";
+        if (!opts.getOrDefault("profiles", "").isBlank()) profiles += "," + opts.get("profiles");
+
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        for (String arg : opts.getOrDefault("jvm-args", "").split(",")) {
+            if (!arg.isBlank()) command.add(arg.trim());
+        }
+        command.addAll(List.of("-jar", jar.toString(),
+                "--server.port=" + port, "--spring.profiles.active=" + profiles));
+
+        var standIn = new StandInServer(new StandInServer.Latency(20, 20), new StandInServer.Latency(20, 20), 0, 0)
+                .start(Integer.parseInt(opts.getOrDefault("stand-in-port", "8999")));
+        try {
+            StartupProbe probe = new StartupProbe(command, port,
+                    Args.duration(opts.getOrDefault("timeout", "120s")),
+                    out.toAbsolutePath().getParent());
+            System.out.println("Launching " + runs + "x: " + String.join(" ", command));
+
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (int run = 1; run <= runs; run++) {
+                Map<String, Object> result = probe.run(run, label);
+                System.out.printf("run %d: %s%n", run, result);
+                results.add(result);
+            }
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("label", label);
+            report.put("command", command);
+            report.put("runs", results);
+            report.put("median", medians(results));
+            System.out.printf("%nmedian (%s): %s%n", label, report.get("median"));
+
+            if (out.getParent() != null) Files.createDirectories(out.getParent());
+            probe.objectMapper.writerWithDefaultPrettyPrinter().writeValue(out.toFile(), report);
+            System.out.println("Results written to " + out);
+        } finally {
+            standIn.stop(0);
+            System.exit(0);
+        }
+    }
+
+    // ── One Cold Start ───────────────────────────────────────────────────────────
+    private Map<String, Object> run(int run, String label) throws Exception {
+        Path log = logDir.resolve("startup-" + label + "-" + run + ".log");
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile());
+        // Placeholders the app requires at startup; the stand-in ignores them
+        for (String key : List.of("OPENROUTER_API_KEY", "GOOGLE_API_KEY", "GOOGLE_SEARCH_CX", "YOUTUBE_API_KEY")) {
+            builder.environment().putIfAbsent(key, "startup-probe");
+        }
+
+        long launched = System.nanoTime();
+        Process process = builder.start();
+        try {
+            long ready = awaitReady(process, launched) - launched;
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("readyMs", millis(ready));
+            result.put("springStartedMs", springStarted(log));
+            result.put("firstChatMs", timed(post("/api/chat",
+                    "{\"sessionId\":\"probe-1\",\"prompt\":\"Explain the JVM class loader briefly.\"}")));
+            result.put("secondChatMs", timed(post("/api/chat",
+                    "{\"sessionId\":\"probe-2\",\"prompt\":\"Explain how a HashMap resolves collisions.\"}")));
+            result.put("firstMcqMs", timed(post("/api/mcq",
+                    "{\"sessionId\":\"probe-3\",\"topic\":\"Java\",\"count\":\"3\",\"difficulty\":\"easy\"}")));
+            return result;
+        } finally {
+            process.destroy();
+            if (!process.waitFor(20, TimeUnit.SECONDS)) process.destroyForcibly().waitFor();
+        }
+    }
+
+    private long awaitReady(Process process, long launched) throws Exception {
+        HttpRequest health = HttpRequest.newBuilder(base.resolve("/actuator/health"))
+                .timeout(Duration.ofSeconds(2))
+                .GET()
+                .build();
+        long deadline = launched + timeout.toNanos();
+
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("App exited with " + process.exitValue() + " before becoming ready");
+            }
+            try {
+                if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return System.nanoTime();
+                }
+            } catch (IOException notListeningYet) {
+                // keep polling
+            }
+            Thread.sleep(10);
+        }
+        throw new IllegalStateException("App not ready within " + timeout);
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(base.resolve(path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private double timed(HttpRequest request) throws Exception {
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        long elapsed = System.nanoTime() - start;
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(request.uri() + " returned " + response.statusCode() + ": " + response.body());
+        }
+        return millis(elapsed);
+    }
+
+    // The log line is written just before the app reports ready, so it is there by now
+    private static Double springStarted(Path log) throws IOException {
+        Matcher m = STARTED.matcher(Files.readString(log));
+        return m.find() ? Math.round(Double.parseDouble(m.group(1)) * 1000 * 10) / 10.0 : null;
+    }
+
+    // ── Reporting ────────────────────────────────────────────────────────────────
+    private static Map<String, Object> medians(List<Map<String, Object>> results) {
+        Map<String, Object> medians = new LinkedHashMap<>();
+        for (String key : results.get(0).keySet()) {
+            double[] values = results.stream()
+                    .map(r -> r.get(key))
+                    .filter(Objects::nonNull)
+                    .mapToDouble(v -> ((Number) v).doubleValue())
+                    .sorted()
+                    .toArray();
+            if (values.length > 0) medians.put(key, values[values.length / 2]);
+        }
+        return medians;
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 100_000.0) / 10.0;
+    }
+}
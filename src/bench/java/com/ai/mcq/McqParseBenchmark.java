@@ -0,0 +1,73 @@
+package com.ai.mcq;
+
+import com.ai.service.OpenRouterMetrics;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MCQ reply parsing across batch sizes: the original fence-strip + readValue path, the
+ * current McqGenerator.parse, and the incremental stream parser fed in token-sized chunks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class McqParseBenchmark {
+
+    @Param({"5", "10", "20"})
+    int count;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private McqGenerator generator;
+    private String reply;
+
+    @Setup
+    public void setup() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        generator = new McqGenerator(null, new OpenRouterMetrics(registry), null, null, registry);
+
+        List<Map<String, Object>> questions = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            questions.add(Map.of(
+                    "questionNo", i,
+                    "question", "Which statement about Java streams is true? (" + i + ")",
+                    "options", Map.of("A", "They are eager", "B", "They are lazy",
+                            "C", "They are reusable", "D", "They mutate the source"),
+                    "correctAnswer", "B",
+                    "explanation", "Intermediate operations are lazy; nothing runs until a terminal operation."
+            ));
+        }
+        reply = "```json\n" + objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(questions) + "\n```";
+    }
+
+    @Benchmark
+    public Object fenceStripAndReadValueLegacy() throws Exception {
+        String cleaned = reply.trim()
+                .replaceAll("(?s)```json\\s*", "")
+                .replaceAll("(?s)```\\s*", "")
+                .trim();
+        return objectMapper.readValue(cleaned, Object.class);
+    }
+
+    @Benchmark
+    public List<JsonNode> generatorParse() throws Exception {
+        return generator.parse(reply);
+    }
+
+    @Benchmark
+    public int streamParser() {
+        McqStreamParser parser = new McqStreamParser(objectMapper, q -> { });
+        for (int i = 0; i < reply.length(); i += 16) {
+            parser.feed(reply.substring(i, Math.min(reply.length(), i + 16)));
+        }
+        return parser.getEmitted();
+    }
+}
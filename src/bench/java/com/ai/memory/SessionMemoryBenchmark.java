@@ -0,0 +1,53 @@
+package com.ai.memory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SessionMemoryStore under multi-threaded contention — a full chat turn (append user
+ * message, read window, append reply) against a pool of sessions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+public class SessionMemoryBenchmark {
+
+    // Few sessions = hot-key contention; many = spread across the map
+    @Param({"16", "10000"})
+    int sessions;
+
+    private SessionMemoryStore store;
+    private String[] sessionIds;
+    private final Message question = new UserMessage("What is polymorphism in Java?");
+    private final Message answer = new AssistantMessage("Polymorphism lets one interface have many forms. ".repeat(8));
+
+    @Setup
+    public void setup() {
+        store = new SessionMemoryStore(new SimpleMeterRegistry(), event -> {}, 20, Duration.ofMinutes(30), 256L * 1024 * 1024);
+        sessionIds = new String[sessions];
+        for (int i = 0; i < sessions; i++) {
+            sessionIds[i] = "session-" + i;
+            for (int m = 0; m < 20; m++) store.add(sessionIds[i], m % 2 == 0 ? question : answer);
+        }
+    }
+
+    @Benchmark
+    public List<Message> chatTurn() {
+        String id = sessionIds[ThreadLocalRandom.current().nextInt(sessions)];
+        store.add(id, question);
+        List<Message> history = store.get(id);
+        store.add(id, answer);
+        return history;
+    }
+}
@@ -0,0 +1,130 @@
+package com.ai.service;
+
+import com.ai.config.SystemPrompts;
+import com.ai.model.ChatCompletionRequest;
+import com.ai.model.ChatCompletionResponse;
+import com.ai.model.ChatMessage;
+import com.ai.tools.DateTimeTool;
+import com.ai.tools.GoogleSearchTool;
+import com.ai.tools.YouTubeSearchTool;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request assembly and response extraction for one OpenRouter call.
+ *
+ * The "legacy" benchmarks reproduce the old Map-tree path so regressions and the gain from
+ * the pre-encoded writer / typed model stay visible side by side.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RequestAssemblyBenchmark {
+
+    // Up to the 20-message session window
+    @Param({"0", "4", "10", "20"})
+    int historySize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final OpenRouterRequestWriter writer = new OpenRouterRequestWriter();
+
+    private List<Message> history;
+    private List<ChatMessage> chatMessages;
+    private byte[] responseBytes;
+
+    @Setup
+    public void setup() throws Exception {
+        history = new ArrayList<>();
+        for (int i = 0; i < historySize; i++) {
+            history.add(i % 2 == 0
+                    ? new UserMessage("Explain Java streams, question " + i + " — with an example please.")
+                    : new AssistantMessage("Java streams process sequences of elements lazily. ".repeat(12)));
+        }
+        chatMessages = OpenRouterService.toChatMessages(history);
+
+        responseBytes = ("""
+                {"id":"gen-1","model":"openai/gpt-3.5-turbo","choices":[{"index":0,"finish_reason":"stop",
+                "message":{"role":"assistant","content":%s}}],
+                "usage":{"prompt_tokens":812,"completion_tokens":256,"total_tokens":1068}}
+                """).formatted(objectMapper.writeValueAsString("Streams are lazy pipelines. ".repeat(40)))
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    // ── Message Building ─────────────────────────────────────────────────────────
+    @Benchmark
+    public List<ChatMessage> buildMessages() {
+        return OpenRouterService.toChatMessages(history);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> buildMessagesLegacy() {
+        List<Map<String, Object>> messages = new ArrayList<>();
+        messages.add(Map.of("role", "system", "content", SystemPrompts.GENERAL_PROMPT));
+        for (Message msg : history) {
+            String role = switch (msg.getMessageType()) {
+                case USER      -> "user";
+                case ASSISTANT -> "assistant";
+                case SYSTEM    -> "system";
+                default        -> "user";
+            };
+            messages.add(Map.of("role", role, "content", msg.getText()));
+        }
+        return messages;
+    }
+
+    // ── Tool Definitions ─────────────────────────────────────────────────────────
+    @Benchmark
+    public void toolDefinitions(Blackhole bh) {
+        bh.consume(DateTimeTool.getToolDefinition());
+        bh.consume(GoogleSearchTool.getToolDefinition());
+        bh.consume(YouTubeSearchTool.getToolDefinition());
+    }
+
+    // ── Request Serialization ────────────────────────────────────────────────────
+    @Benchmark
+    public byte[] serializeRequest() {
+        return writer.write(new ChatCompletionRequest(
+                "openai/gpt-3.5-turbo", "general", chatMessages, true, false));
+    }
+
+    @Benchmark
+    public byte[] serializeRequestLegacy() throws Exception {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", "openai/gpt-3.5-turbo");
+        requestBody.put("messages", buildMessagesLegacy());
+        requestBody.put("tools", List.of(
+                DateTimeTool.getToolDefinition(),
+                GoogleSearchTool.getToolDefinition(),
+                YouTubeSearchTool.getToolDefinition()
+        ));
+        requestBody.put("tool_choice", "auto");
+        return objectMapper.writeValueAsBytes(requestBody);
+    }
+
+    // ── Response Extraction ──────────────────────────────────────────────────────
+    @Benchmark
+    public String extractResponse() throws Exception {
+        ChatCompletionResponse response = objectMapper.readValue(responseBytes, ChatCompletionResponse.class);
+        return response.firstChoice().message().content();
+    }
+
+    @Benchmark
+    @SuppressWarnings("rawtypes")
+    public String extractResponseLegacy() throws Exception {
+        Map result = objectMapper.readValue(responseBytes, Map.class);
+        List choices = (List) result.get("choices");
+        Map choice = (Map) choices.get(0);
+        Map message = (Map) choice.get("message");
+        return message.get("content").toString();
+    }
+}
@@ -0,0 +1,72 @@
+package com.ai.cache;
+
+import com.ai.tools.QueryNormalizer;
+
+import java.util.Set;
+
+/**
+ * Local prompt embedding — the hashing trick over word unigrams, word bigrams and character
+ * trigrams, L2-normalized so a dot product is the cosine similarity.
+ *
+ * No model and no external call: embedding a prompt is a few microseconds. Word features
+ * make word order mostly irrelevant ("abstract class vs interface" ~ "interface vs abstract
+ * class"); character trigrams absorb typos and inflections ("polymorphism" ~ "polymorphic").
+ */
+public final class HashingVectorizer {
+
+    // Request phrasing that carries no meaning for the answer
+    private static final Set<String> FILLER = Set.of(
+            "explain", "tell", "describe", "define", "give", "show", "briefly", "simple",
+            "words", "terms", "example", "meant", "mean", "by", "it", "this", "that", "be"
+    );
+
+    private static final float WORD_WEIGHT    = 1.0f;
+    private static final float BIGRAM_WEIGHT  = 0.7f;
+    private static final float TRIGRAM_WEIGHT = 0.4f;
+
+    private final int dimensions;
+
+    public HashingVectorizer(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    public float[] embed(String text) {
+        float[] vector = new float[dimensions];
+        String[] words = QueryNormalizer.normalize(text).split(" ");
+
+        String previous = null;
+        for (String word : words) {
+            if (word.isEmpty() || FILLER.contains(word)) continue;
+
+            add(vector, word, WORD_WEIGHT);
+            if (previous != null) add(vector, previous + ' ' + word, BIGRAM_WEIGHT);
+            previous = word;
+
+            String padded = '^' + word + '$';
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                add(vector, padded.substring(i, i + 3), TRIGRAM_WEIGHT);
+            }
+        }
+
+        double norm = 0;
+        for (float v : vector) norm += v * v;
+        if (norm > 0) {
+            float scale = (float) (1.0 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    public static float cosine(float[] a, float[] b) {
+        float dot = 0;
+        for (int i = 0; i < a.length; i++) dot += a[i] * b[i];
+        return dot;
+    }
+
+    // Signed hashing: the sign bit keeps colliding features from only ever adding up
+    private void add(float[] vector, String feature, float weight) {
+        int h = feature.hashCode() * 0x9E3779B1;
+        int index = Math.floorMod(h >>> 1, dimensions);
+        vector[index] += (h & 1) == 0 ? weight : -weight;
+    }
+}
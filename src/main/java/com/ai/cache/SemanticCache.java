@@ -0,0 +1,210 @@
+package com.ai.cache;
+
+import com.ai.config.SystemPrompts;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Reply cache for near-duplicate general-mode questions, matched by meaning rather than text.
+ *
+ * Prompts are embedded locally ({@link HashingVectorizer}) and indexed with random-hyperplane
+ * LSH: {@code tables} independent signatures of {@code bits} bits each, so a lookup only
+ * scores the entries that share at least one bucket with the prompt. The best candidate at
+ * or above {@code threshold} cosine similarity is a hit. Entries expire after a TTL and are
+ * size-bounded by Caffeine; evicted entries are unlinked from their buckets.
+ *
+ * Only stateless turns are eligible (a reply that depended on earlier history would be wrong
+ * for someone else), and prompts about the current time, news, search or videos always go
+ * upstream because their answers come from tools.
+ *
+ * semantic.cache.requests{result=hit|miss|bypass_history|bypass_realtime}
+ * semantic.cache.similarity — best candidate similarity per lookup, for tuning the threshold
+ */
+@Component
+public class SemanticCache {
+
+    private static final Pattern REALTIME = Pattern.compile(
+            "\\b(time|date|day|today|tonight|tomorrow|yesterday|now|current|currently|latest|recent|recently"
+                    + "|news|update|updates|search|google|look\\s+up|find|video|videos|youtube|watch|tutorials?"
+                    + "|link|links|url|weather|price|score|20\\d\\d)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final int MAX_CANDIDATES = 256;
+
+    private final boolean enabled;
+    private final double threshold;
+    private final int tables;
+    private final int bits;
+    private final HashingVectorizer vectorizer;
+    private final float[][] hyperplanes;
+
+    private final Cache<Long, Entry> entries;
+    private final Map<Long, Set<Long>> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    private final MeterRegistry registry;
+    private final DistributionSummary similarity;
+
+    private record Entry(float[] vector, long[] bucketKeys, String reply) {
+    }
+
+    public SemanticCache(
+            MeterRegistry registry,
+            @Value("${semantic.cache.enabled:true}") boolean enabled,
+            @Value("${semantic.cache.threshold:0.9}") double threshold,
+            @Value("${semantic.cache.ttl:6h}") Duration ttl,
+            @Value("${semantic.cache.max-entries:10000}") long maxEntries,
+            @Value("${semantic.cache.dimensions:256}") int dimensions,
+            @Value("${semantic.cache.lsh.tables:8}") int tables,
+            @Value("${semantic.cache.lsh.bits:10}") int bits
+    ) {
+        this.registry   = registry;
+        this.enabled    = enabled;
+        this.threshold  = threshold;
+        this.tables     = tables;
+        this.bits       = bits;
+        this.vectorizer = new HashingVectorizer(dimensions);
+
+        // Fixed seed: the same prompt always lands in the same buckets across restarts
+        Random random = new Random(0x5EED);
+        this.hyperplanes = new float[tables * bits][dimensions];
+        for (float[] plane : hyperplanes) {
+            for (int i = 0; i < dimensions; i++) plane[i] = (float) random.nextGaussian();
+        }
+
+        this.entries = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxEntries)
+                .removalListener((Long id, Entry entry, RemovalCause cause) -> {
+                    if (id != null && entry != null) unlink(id, entry);
+                })
+                .build();
+
+        this.similarity = DistributionSummary.builder("semantic.cache.similarity")
+                .serviceLevelObjectives(0.5, 0.7, 0.8, 0.85, 0.9, 0.95)
+                .register(registry);
+        Gauge.builder("semantic.cache.size", entries, Cache::estimatedSize).register(registry);
+    }
+
+    // ── Eligibility ──────────────────────────────────────────────────────────────
+    // stateless: the session had no history before this turn
+    public boolean eligible(String systemPromptType, String prompt, boolean stateless) {
+        if (!enabled || prompt == null || !"general".equals(SystemPrompts.modeOf(systemPromptType))) {
+            return false;
+        }
+        if (!stateless) {
+            record("bypass_history");
+            return false;
+        }
+        if (REALTIME.matcher(prompt).find()) {
+            record("bypass_realtime");
+            return false;
+        }
+        return true;
+    }
+
+    // ── Lookup / Store ───────────────────────────────────────────────────────────
+    /** Cached reply for a semantically equivalent prompt, or null. */
+    public String lookup(String prompt) {
+        float[] vector = vectorizer.embed(prompt);
+
+        Entry best = null;
+        float bestScore = 0;
+        int scanned = 0;
+        Set<Long> seen = new HashSet<>();
+
+        for (long key : bucketKeys(vector)) {
+            Set<Long> bucket = buckets.get(key);
+            if (bucket == null) continue;
+
+            for (Long id : bucket) {
+                if (!seen.add(id) || ++scanned > MAX_CANDIDATES) continue;
+                Entry entry = entries.getIfPresent(id);
+                if (entry == null) continue;
+
+                float score = HashingVectorizer.cosine(vector, entry.vector());
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = entry;
+                }
+            }
+        }
+
+        similarity.record(bestScore);
+        if (best != null && bestScore >= threshold) {
+            record("hit");
+            return best.reply();
+        }
+        record("miss");
+        return null;
+    }
+
+    public void put(String prompt, String reply) {
+        if (reply == null || reply.isBlank()) return;
+
+        float[] vector = vectorizer.embed(prompt);
+        long[] keys = bucketKeys(vector);
+        long id = ids.incrementAndGet();
+
+        // Link before publishing: once the entry is in the cache it can be evicted and unlinked
+        // at any time, and ids added after that would never be removed. Lookups skip ids whose
+        // entry is not there yet. compute() so a concurrent unlink can't drop the bucket between
+        // lookup and add.
+        for (long key : keys) {
+            buckets.compute(key, (k, bucket) -> {
+                Set<Long> members = bucket != null ? bucket : ConcurrentHashMap.<Long>newKeySet();
+                members.add(id);
+                return members;
+            });
+        }
+        entries.put(id, new Entry(vector, keys, reply));
+    }
+
+    // ── LSH ──────────────────────────────────────────────────────────────────────
+    // One key per table: table index in the high bits, the sign pattern of `bits` hyperplanes below
+    private long[] bucketKeys(float[] vector) {
+        long[] keys = new long[tables];
+        for (int t = 0; t < tables; t++) {
+            long signature = 0;
+            for (int b = 0; b < bits; b++) {
+                if (HashingVectorizer.cosine(hyperplanes[t * bits + b], vector) >= 0) signature |= 1L << b;
+            }
+            keys[t] = ((long) t << 32) | signature;
+        }
+        return keys;
+    }
+
+    private void unlink(long id, Entry entry) {
+        for (long key : entry.bucketKeys()) {
+            buckets.computeIfPresent(key, (k, bucket) -> {
+                bucket.remove(id);
+                return bucket.isEmpty() ? null : bucket;
+            });
+        }
+    }
+
+    // Bucket memberships across all tables, for tests
+    int linkedIds() {
+        entries.cleanUp();
+        return buckets.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void record(String result) {
+        registry.counter("semantic.cache.requests", "result", result).increment();
+    }
+}
@@ -0,0 +1,90 @@
+package com.ai.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class AsyncConfig {
+
+    // Runs the blocking part of /api/* requests so Tomcat workers are released immediately.
+    // No queue: when every thread is busy the request is rejected with 429 straight away.
+    @Bean(name = "requestExecutor")
+    public ThreadPoolTaskExecutor requestExecutor(
+            @Value("${request.executor.size:256}") int size
+    ) {
+        return boundedExecutor("request-", size, 0);
+    }
+
+    // Dedicated pool for SSE streams — each stream holds a thread for the whole upstream response
+    @Bean(name = "streamExecutor")
+    public ThreadPoolTaskExecutor streamExecutor(
+            @Value("${stream.executor.size:64}") int size,
+            @Value("${stream.executor.queue-capacity:100}") int queueCapacity
+    ) {
+        return boundedExecutor("sse-stream-", size, queueCapacity);
+    }
+
+    // Bounded pool for tool calls (Google / YouTube lookups) fanned out from one LLM turn
+    @Bean(name = "toolExecutor")
+    public ThreadPoolTaskExecutor toolExecutor(
+            @Value("${tools.executor.size:32}") int size,
+            @Value("${tools.executor.queue-capacity:200}") int queueCapacity
+    ) {
+        return boundedExecutor("tool-", size, queueCapacity);
+    }
+
+    // Upstream attempts issued by ModelRouter (primary + hedge). No queue: when the pool is
+    // full the router calls the primary on the request thread instead of waiting for a slot.
+    @Bean(name = "routerExecutor")
+    public ThreadPoolTaskExecutor routerExecutor(
+            @Value("${router.executor.size:256}") int size
+    ) {
+        return boundedExecutor("router-", size, 0);
+    }
+
+    // Chunk generations fanned out from /api/mcq/batch — bounds batch concurrency across all requests
+    @Bean(name = "mcqBatchExecutor")
+    public ThreadPoolTaskExecutor mcqBatchExecutor(
+            @Value("${mcq.batch.executor.size:16}") int size,
+            @Value("${mcq.batch.executor.queue-capacity:200}") int queueCapacity
+    ) {
+        return boundedExecutor("mcq-batch-", size, queueCapacity);
+    }
+
+    // Background rolling-summary calls (see ContextManager) — small, low priority, never on a request thread
+    @Bean(name = "summaryExecutor")
+    public ThreadPoolTaskExecutor summaryExecutor(
+            @Value("${context.summary.executor.size:2}") int size,
+            @Value("${context.summary.executor.queue-capacity:100}") int queueCapacity
+    ) {
+        ThreadPoolTaskExecutor executor = boundedExecutor("summary-", size, queueCapacity);
+        executor.setThreadPriority(Thread.MIN_PRIORITY);
+        return executor;
+    }
+
+    // Speculative next-batch MCQ generation (see McqLookahead) — low priority, drops work when full
+    @Bean(name = "mcqLookaheadExecutor")
+    public ThreadPoolTaskExecutor mcqLookaheadExecutor(
+            @Value("${mcq.lookahead.executor.size:4}") int size,
+            @Value("${mcq.lookahead.executor.queue-capacity:50}") int queueCapacity
+    ) {
+        ThreadPoolTaskExecutor executor = boundedExecutor("mcq-lookahead-", size, queueCapacity);
+        executor.setThreadPriority(Thread.MIN_PRIORITY);
+        return executor;
+    }
+
+    // Blocking-IO pool: core == max so all threads are used before tasks queue,
+    // idle threads time out so the pool shrinks back when traffic drops
+    private ThreadPoolTaskExecutor boundedExecutor(String prefix, int size, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(size);
+        executor.setMaxPoolSize(size);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(prefix);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,74 @@
+package com.ai.config;
+
+import com.ai.http.DeadlineInterceptor;
+import com.ai.http.PerHostLimitInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * One shared outbound HTTP layer for OpenRouter, Google and YouTube.
+ *
+ * JDK HttpClient: HTTP/2 (falls back to HTTP/1.1 with keep-alive), connect timeout,
+ * per-request read timeout. Per-host slot limits and the total deadline are interceptors.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Bean
+    public HttpClient outboundHttpClient(
+            @Value("${http.client.connect-timeout:3s}") Duration connectTimeout,
+            @Value("${http.client.keep-alive:60s}") Duration keepAlive,
+            @Value("${http.client.max-idle-connections:64}") int maxIdleConnections
+    ) {
+        // Read once by the JDK when the first client is built
+        System.setProperty("jdk.httpclient.keepalive.timeout", String.valueOf(keepAlive.toSeconds()));
+        System.setProperty("jdk.httpclient.connectionPoolSize", String.valueOf(maxIdleConnections));
+
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService outboundDeadlineWatchdog() {
+        return Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "http-deadline");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Bean
+    public RestTemplate outboundRestTemplate(
+            HttpClient outboundHttpClient,
+            ScheduledExecutorService outboundDeadlineWatchdog,
+            MeterRegistry registry,
+            @Value("${http.client.read-timeout:60s}") Duration readTimeout,
+            @Value("${http.client.total-timeout:120s}") Duration totalTimeout,
+            @Value("${http.client.max-per-host:50}") int maxPerHost,
+            @Value("${http.client.acquire-timeout:2s}") Duration acquireTimeout
+    ) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(outboundHttpClient);
+        factory.setReadTimeout(readTimeout);
+
+        RestTemplate restTemplate = new RestTemplate(factory);
+        // Order matters: the deadline wraps the slot wait as well as the exchange
+        restTemplate.setInterceptors(List.of(
+                new DeadlineInterceptor(totalTimeout, outboundDeadlineWatchdog),
+                new PerHostLimitInterceptor(maxPerHost, acquireTimeout, registry)
+        ));
+        return restTemplate;
+    }
+}
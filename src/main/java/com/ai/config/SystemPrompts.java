@@ -64,11 +64,30 @@ public class SystemPrompts {
             Use bullet points and clear formatting for readability.
             """;
 
+    public static final String SUMMARY_PROMPT = """
+            You maintain a running summary of a student's conversation with a learning assistant.
+            You are given the summary so far (if any) and the turns that are being removed from the
+            conversation. Return an updated summary that keeps what later answers may rely on:
+            topics studied, questions already asked, the student's level, weak areas and preferences.
+            Write at most 120 words of plain text. No preamble, no markdown.
+            """;
+
     public static String getPrompt(String type) {
         return switch (type != null ? type.toLowerCase() : "general") {
             case "mcq"         -> MCQ_PROMPT;
             case "performance" -> PERFORMANCE_PROMPT;
+            case "summary"     -> SUMMARY_PROMPT;
             default            -> GENERAL_PROMPT;
         };
     }
+
+    // Canonical mode name for a prompt type — used for metric tags and per-mode settings
+    public static String modeOf(String type) {
+        return switch (type != null ? type.toLowerCase() : "general") {
+            case "mcq"         -> "mcq";
+            case "performance" -> "performance";
+            case "summary"     -> "summary";
+            default            -> "general";
+        };
+    }
 }
\ No newline at end of file
@@ -1,11 +1,40 @@
 package com.ai.controller;
 
+import com.ai.mcq.McqBank;
+import com.ai.mcq.McqBatchGenerator;
+import com.ai.mcq.McqGenerator;
+import com.ai.mcq.McqKey;
+import com.ai.mcq.McqLookahead;
+import com.ai.mcq.McqStreamParser;
+import com.ai.performance.PerformanceAnalytics;
+import com.ai.performance.PerformanceFeedbackCache;
+import com.ai.service.DegradationController;
 import com.ai.service.OpenRouterService;
+import com.ai.service.UpstreamCallPolicy;
+import com.ai.service.UpstreamOverloadedException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api")
@@ -16,86 +45,384 @@ import java.util.Map;
 })
 public class AiController {
 
+    // 0 = full service; see DegradationController.Level for what each step sheds
+    static final String DEGRADATION_LEVEL_HEADER = "X-Degradation-Level";
+
     private final OpenRouterService service;
+    private final McqGenerator mcqGenerator;
+    private final McqBatchGenerator mcqBatchGenerator;
+    private final McqBank mcqBank;
+    private final McqLookahead mcqLookahead;
+    private final PerformanceFeedbackCache performanceFeedback;
+    private final DegradationController degradation;
+    private final TaskExecutor requestExecutor;
+    private final TaskExecutor streamExecutor;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    public AiController(OpenRouterService service) {
+    @Value("${stream.timeout-ms:120000}")
+    private long streamTimeoutMs;
+
+    @Value("${upstream.retry-after:2s}")
+    private Duration retryAfter;
+
+    @Value("${mcq.batch.max-items:10}")
+    private int batchMaxItems;
+
+    @Value("${mcq.batch.max-count:50}")
+    private int batchMaxCount;
+
+    @Value("${mcq.batch.deadline:60s}")
+    private Duration batchDeadline;
+
+    public AiController(OpenRouterService service,
+                        McqGenerator mcqGenerator,
+                        McqBatchGenerator mcqBatchGenerator,
+                        McqBank mcqBank,
+                        McqLookahead mcqLookahead,
+                        PerformanceFeedbackCache performanceFeedback,
+                        DegradationController degradation,
+                        @Qualifier("requestExecutor") TaskExecutor requestExecutor,
+                        @Qualifier("streamExecutor") TaskExecutor streamExecutor) {
         this.service = service;
+        this.mcqGenerator = mcqGenerator;
+        this.mcqBatchGenerator = mcqBatchGenerator;
+        this.mcqBank = mcqBank;
+        this.mcqLookahead = mcqLookahead;
+        this.performanceFeedback = performanceFeedback;
+        this.degradation = degradation;
+        this.requestExecutor = requestExecutor;
+        this.streamExecutor = streamExecutor;
     }
 
     // ── MCQ Generation ──────────────────────────────────────────────────────────
     @PostMapping("/mcq")
-    public ResponseEntity<?> generateMCQ(@RequestBody Map<String, String> body) {
-        try {
+    public CompletableFuture<ResponseEntity<?>> generateMCQ(@RequestBody Map<String, String> body) {
+        return async(() -> {
             String sessionId   = body.getOrDefault("sessionId", "default");
             String topic       = body.getOrDefault("topic", "Java");
             String count       = body.getOrDefault("count", "5");
             String difficulty  = body.getOrDefault("difficulty", "medium");
 
-            String prompt = String.format(
-                    "Generate exactly %s MCQ questions on the topic: '%s'. Difficulty level: %s.",
-                    count, topic, difficulty
-            );
+            return ResponseEntity.ok(mcqGenerator.generate(sessionId, topic, count, difficulty));
+        });
+    }
+
+    // ── MCQ Batch Generation ─────────────────────────────────────────────────────
+    // {"sessionId", "items": [{"topic", "count", "difficulty"}, ...], "deadlineMs"?}
+    // Per-item status: ok | partial | timeout | error — one slow topic never fails the batch.
+    @PostMapping("/mcq/batch")
+    public CompletableFuture<ResponseEntity<?>> generateMCQBatch(@RequestBody Map<String, Object> body) {
+        String sessionId = String.valueOf(body.getOrDefault("sessionId", "default"));
+
+        List<McqBatchGenerator.Item> items = new ArrayList<>();
+        if (body.get("items") instanceof List<?> rawItems) {
+            for (Object raw : rawItems) {
+                if (!(raw instanceof Map<?, ?> spec)) continue;
+                int count = parseInt(spec.get("count"), 5);
+                if (count < 1 || count > batchMaxCount) {
+                    return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(
+                            Map.of("error", "count must be between 1 and " + batchMaxCount)));
+                }
+                items.add(new McqBatchGenerator.Item(
+                        String.valueOf(spec.get("topic") != null ? spec.get("topic") : "Java"),
+                        count,
+                        String.valueOf(spec.get("difficulty") != null ? spec.get("difficulty") : "medium")));
+            }
+        }
+        if (items.isEmpty() || items.size() > batchMaxItems) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(
+                    Map.of("error", "items must contain between 1 and " + batchMaxItems + " entries")));
+        }
+
+        // A caller may ask for a shorter deadline, never a longer one
+        int requestedDeadlineMs = parseInt(body.get("deadlineMs"), Integer.MAX_VALUE);
+        if (requestedDeadlineMs < 1) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(
+                    Map.of("error", "deadlineMs must be at least 1")));
+        }
+        long deadlineMs = Math.min(requestedDeadlineMs, batchDeadline.toMillis());
+
+        // The session has moved on from whatever quiz its prefetch was for
+        mcqLookahead.discardUnless(sessionId, null);
 
-            String aiResponse = service.callOpenRouter(sessionId, prompt, "mcq");
+        return async(() -> {
+            long start = System.nanoTime();
+            List<McqBatchGenerator.ItemResult> results =
+                    mcqBatchGenerator.generate(sessionId, items, Duration.ofMillis(deadlineMs));
+            return ResponseEntity.ok(Map.of(
+                    "results", results,
+                    "elapsedMs", Duration.ofNanos(System.nanoTime() - start).toMillis()));
+        });
+    }
+
+    // ── MCQ Generation (NDJSON stream) ───────────────────────────────────────────
+    // One question object per line, sent as soon as it closes in the upstream token stream.
+    // Malformed questions are skipped; a failure ends the stream with an {"error": ...} line.
+    @PostMapping("/mcq/stream")
+    public ResponseEntity<ResponseBodyEmitter> generateMCQStream(@RequestBody Map<String, String> body) {
+        String sessionId   = body.getOrDefault("sessionId", "default");
+        String topic       = body.getOrDefault("topic", "Java");
+        String count       = body.getOrDefault("count", "5");
+        String difficulty  = body.getOrDefault("difficulty", "medium");
+
+        String prompt = McqGenerator.buildPrompt(topic, count, difficulty);
+        mcqLookahead.discardUnless(sessionId, McqKey.of(topic, count, difficulty));
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(streamTimeoutMs);
 
-            // Strip markdown code fences if model wraps JSON
-            String cleaned = aiResponse.trim()
-                    .replaceAll("(?s)```json\\s*", "")
-                    .replaceAll("(?s)```\\s*", "")
-                    .trim();
+        if (!tryStart(() -> {
+            try {
+                List<JsonNode> streamed = new ArrayList<>();
+                McqStreamParser parser = new McqStreamParser(objectMapper, question -> {
+                    streamed.add(question);
+                    sendLine(emitter, question);
+                });
+                service.streamOpenRouter(sessionId, prompt, "mcq", parser::feed, tool -> { });
+                emitter.complete();
+                mcqBank.store(sessionId, topic, difficulty, streamed);
+
+            } catch (Exception e) {
+                try {
+                    sendLine(emitter, errorBody(e));
+                } catch (IllegalStateException ignored) {
+                    // client already gone
+                }
+                emitter.completeWithError(e);
+            }
+        })) {
+            return busy();
+        }
 
-            Object parsed = objectMapper.readValue(cleaned, Object.class);
-            return ResponseEntity.ok(parsed);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(emitter);
+    }
 
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+    private void sendLine(ResponseBodyEmitter emitter, Object value) {
+        try {
+            emitter.send(objectMapper.writeValueAsString(value) + "\n", MediaType.TEXT_PLAIN);
+        } catch (IOException e) {
+            throw new IllegalStateException("Client disconnected", e);
         }
     }
 
     // ── General Chat ─────────────────────────────────────────────────────────────
     @PostMapping("/chat")
-    public ResponseEntity<?> chat(@RequestBody Map<String, String> body) {
-        try {
+    public CompletableFuture<ResponseEntity<?>> chat(@RequestBody Map<String, String> body) {
+        return async(() -> {
             String sessionId        = body.getOrDefault("sessionId", "default");
             String prompt           = body.get("prompt");
             String systemPromptType = body.getOrDefault("systemPromptType", "general");
 
+            String level = degradationLevel(systemPromptType);
             String aiResponse = service.callOpenRouter(sessionId, prompt, systemPromptType);
-            return ResponseEntity.ok(Map.of("reply", aiResponse));
-
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
-        }
+            return ResponseEntity.ok()
+                    .header(DEGRADATION_LEVEL_HEADER, level)
+                    .body(Map.of("reply", aiResponse));
+        });
     }
 
     // ── Performance Feedback ──────────────────────────────────────────────────────
+    // Scores are computed locally; the model-written review is cached per result bucket
     @PostMapping("/performance")
-    public ResponseEntity<?> performance(@RequestBody Map<String, String> body) {
+    public CompletableFuture<ResponseEntity<?>> performance(@RequestBody Map<String, String> body) {
+        return async(() -> {
+            String sessionId = body.getOrDefault("sessionId", "default");
+            PerformanceAnalytics.Report report = analyze(body);
+
+            String feedback = performanceFeedback.feedback(report);
+            service.recordTurn(sessionId, buildPerformancePrompt(body), feedback);
+            return ResponseEntity.ok(Map.of("feedback", feedback, "analytics", report));
+        });
+    }
+
+    private static PerformanceAnalytics.Report analyze(Map<String, String> body) {
+        return PerformanceAnalytics.analyze(
+                body.getOrDefault("topic", "Unknown"),
+                body.getOrDefault("difficulty", "medium"),
+                parseInt(body.get("correct"), 0),
+                parseInt(body.get("total"), 5),
+                parseDouble(body.get("timePerQuestion"), 30));
+    }
+
+    // ── Streaming (SSE) ───────────────────────────────────────────────────────────
+    // Events: "delta" {content}, "tool" {name}, "done" {reply | feedback, analytics}, "error" {error}
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> chatStream(@RequestBody Map<String, String> body) {
+        String sessionId        = body.getOrDefault("sessionId", "default");
+        String prompt           = body.get("prompt");
+        String systemPromptType = body.getOrDefault("systemPromptType", "general");
+
+        return stream(sessionId, prompt, systemPromptType, "reply");
+    }
+
+    @PostMapping(value = "/performance/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> performanceStream(@RequestBody Map<String, String> body) {
+        String sessionId = body.getOrDefault("sessionId", "default");
+        PerformanceAnalytics.Report report = analyze(body);
+
+        // Same feedback as /performance: a cached bucket is sent whole as "done", only a miss streams
+        return stream("performance", emitter -> {
+            String feedback = performanceFeedback.cached(report);
+            if (feedback == null) {
+                feedback = performanceFeedback.stream(sessionId, report,
+                        delta -> send(emitter, "delta", Map.of("content", delta)));
+            }
+            service.recordTurn(sessionId, buildPerformancePrompt(body), feedback);
+            send(emitter, "done", Map.of("feedback", feedback, "analytics", report));
+        });
+    }
+
+    private ResponseEntity<SseEmitter> stream(String sessionId, String prompt, String systemPromptType, String doneKey) {
+        return stream(systemPromptType, emitter -> {
+            String full = service.streamOpenRouter(sessionId, prompt, systemPromptType,
+                    delta -> send(emitter, "delta", Map.of("content", delta)),
+                    tool  -> send(emitter, "tool", Map.of("name", tool)));
+            send(emitter, "done", Map.of(doneKey, full));
+        });
+    }
+
+    private interface StreamBody {
+        void run(SseEmitter emitter) throws Exception;
+    }
+
+    private ResponseEntity<SseEmitter> stream(String systemPromptType, StreamBody body) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+
+        if (!tryStart(() -> {
+            try {
+                body.run(emitter);
+                emitter.complete();
+
+            } catch (Exception e) {
+                try {
+                    emitter.send(SseEmitter.event().name("error")
+                            .data(errorBody(e), MediaType.APPLICATION_JSON));
+                } catch (IOException ignored) {
+                    // client already gone
+                }
+                emitter.completeWithError(e);
+            }
+        })) {
+            return busy();
+        }
+
+        return ResponseEntity.ok()
+                .header(DEGRADATION_LEVEL_HEADER, degradationLevel(systemPromptType))
+                .body(emitter);
+    }
+
+    private String degradationLevel(String systemPromptType) {
+        return String.valueOf(degradation.level(systemPromptType).ordinal());
+    }
+
+    // Streams hold a thread for their whole lifetime; a full stream pool means 429, not a queue
+    private boolean tryStart(Runnable task) {
         try {
-            String sessionId   = body.getOrDefault("sessionId", "default");
-            String topic       = body.getOrDefault("topic", "Unknown");
-            String correct     = body.getOrDefault("correct", "0");
-            String total       = body.getOrDefault("total", "5");
-            String difficulty  = body.getOrDefault("difficulty", "medium");
-            String timePerQ    = body.getOrDefault("timePerQuestion", "30");
-
-            String prompt = String.format(
-                    "Quiz Performance Report:\n" +
-                            "- Topic: %s\n" +
-                            "- Total Questions: %s\n" +
-                            "- Correct Answers: %s\n" +
-                            "- Difficulty Level: %s\n" +
-                            "- Time Per Question: %s seconds\n\n" +
-                            "Please give a detailed performance review and study recommendations.",
-                    topic, total, correct, difficulty, timePerQ
-            );
-
-            String feedback = service.callOpenRouter(sessionId, prompt, "performance");
-            return ResponseEntity.ok(Map.of("feedback", feedback));
-
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+            streamExecutor.execute(task);
+            return true;
+        } catch (TaskRejectedException e) {
+            return false;
+        }
+    }
+
+    private <T> ResponseEntity<T> busy() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter.toSeconds()))
+                .build();
+    }
+
+    private void send(SseEmitter emitter, String event, Map<String, ?> data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            throw new IllegalStateException("Client disconnected", e);
+        }
+    }
+
+    private String buildPerformancePrompt(Map<String, String> body) {
+        String topic       = body.getOrDefault("topic", "Unknown");
+        String correct     = body.getOrDefault("correct", "0");
+        String total       = body.getOrDefault("total", "5");
+        String difficulty  = body.getOrDefault("difficulty", "medium");
+        String timePerQ    = body.getOrDefault("timePerQuestion", "30");
+
+        return String.format(
+                "Quiz Performance Report:\n" +
+                        "- Topic: %s\n" +
+                        "- Total Questions: %s\n" +
+                        "- Correct Answers: %s\n" +
+                        "- Difficulty Level: %s\n" +
+                        "- Time Per Question: %s seconds\n\n" +
+                        "Please give a detailed performance review and study recommendations.",
+                topic, total, correct, difficulty, timePerQ
+        );
+    }
+
+    private static int parseInt(Object value, int defaultValue) {
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(String.valueOf(value).trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static double parseDouble(Object value, double defaultValue) {
+        if (value == null) return defaultValue;
+        try {
+            return Double.parseDouble(String.valueOf(value).trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    // ── Async Dispatch & Errors ───────────────────────────────────────────────────
+    // Blocking work runs on the bounded request executor; the servlet thread returns at once.
+    private CompletableFuture<ResponseEntity<?>> async(Callable<ResponseEntity<?>> handler) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return handler.call();
+                } catch (Exception e) {
+                    return error(e);
+                }
+            }, requestExecutor);
+        } catch (TaskRejectedException e) {
+            return CompletableFuture.completedFuture(busy());
+        }
+    }
+
+    private ResponseEntity<?> error(Exception e) {
+        if (e instanceof UpstreamOverloadedException overloaded) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(overloaded.getRetryAfterSeconds()))
+                    .body(errorBody(e));
+        }
+        // Upstream failures that survived the retry policy: rate limits stay 429s, the rest are gateway errors
+        if (e instanceof HttpStatusCodeException upstream) {
+            if (upstream.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+                Duration wait = UpstreamCallPolicy.retryAfter(upstream);
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf((wait != null ? wait : retryAfter).toSeconds()))
+                        .body(errorBody(e));
+            }
+            if (upstream.getStatusCode().is5xxServerError()) {
+                return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(errorBody(e));
+            }
+        }
+        if (e instanceof ResourceAccessException io) {
+            HttpStatus status = "timeout".equals(UpstreamCallPolicy.retryCause(io))
+                    ? HttpStatus.GATEWAY_TIMEOUT : HttpStatus.BAD_GATEWAY;
+            return ResponseEntity.status(status).body(errorBody(e));
+        }
+        return ResponseEntity.status(500).body(errorBody(e));
+    }
+
+    private Map<String, Object> errorBody(Exception e) {
+        if (e instanceof UpstreamOverloadedException overloaded) {
+            return Map.of("error", String.valueOf(e.getMessage()),
+                    "retryAfter", overloaded.getRetryAfterSeconds());
         }
+        return Map.of("error", String.valueOf(e.getMessage()));
     }
-}
\ No newline at end of file
+}
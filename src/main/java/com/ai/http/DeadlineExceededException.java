@@ -0,0 +1,18 @@
+package com.ai.http;
+
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+
+/**
+ * An exchange cut off by {@link DeadlineInterceptor} after using its whole total timeout.
+ * It is a timeout like any other, but there is no time left to try again.
+ */
+public class DeadlineExceededException extends HttpTimeoutException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DeadlineExceededException(Duration totalTimeout, Throwable cause) {
+        super("Upstream exchange exceeded its total timeout of " + totalTimeout);
+        initCause(cause);
+    }
+}
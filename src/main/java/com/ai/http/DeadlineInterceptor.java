@@ -0,0 +1,79 @@
+package com.ai.http;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enforces a total deadline on an exchange — slot wait, response headers and body read.
+ *
+ * The JDK client blocks interruptibly both while waiting for the response and while reading
+ * its body, so the watchdog interrupts the calling thread once the deadline passes. The
+ * watchdog is disarmed when the response is closed. The client reports the interrupt as a
+ * plain IOException, so a failure after the watchdog fired is rethrown as a
+ * {@link DeadlineExceededException} to keep it recognizable as a timeout.
+ */
+public class DeadlineInterceptor implements ClientHttpRequestInterceptor {
+
+    private final Duration totalTimeout;
+    private final ScheduledExecutorService watchdog;
+
+    public DeadlineInterceptor(Duration totalTimeout, ScheduledExecutorService watchdog) {
+        this.totalTimeout = totalTimeout;
+        this.watchdog = watchdog;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+
+        Deadline deadline = new Deadline(Thread.currentThread());
+        deadline.arm(watchdog.schedule(deadline::expire, totalTimeout.toMillis(), TimeUnit.MILLISECONDS));
+
+        try {
+            return new ReleasingResponse(execution.execute(request, body), () -> deadline.disarm());
+        } catch (IOException | RuntimeException e) {
+            boolean fired = deadline.disarm();
+            if (fired) throw new DeadlineExceededException(totalTimeout, e);
+            throw e;
+        }
+    }
+
+    private static class Deadline {
+        private final Thread owner;
+        private ScheduledFuture<?> timer;
+        private boolean done;
+        private boolean fired;
+
+        private Deadline(Thread owner) {
+            this.owner = owner;
+        }
+
+        private synchronized void arm(ScheduledFuture<?> timer) {
+            this.timer = timer;
+        }
+
+        private synchronized void expire() {
+            if (!done) {
+                fired = true;
+                owner.interrupt();
+            }
+        }
+
+        // True if the watchdog had already fired
+        private synchronized boolean disarm() {
+            done = true;
+            if (timer != null) timer.cancel(false);
+            // Don't leak our interrupt into whatever the thread does next
+            if (fired && Thread.currentThread() == owner) Thread.interrupted();
+            return fired;
+        }
+    }
+}
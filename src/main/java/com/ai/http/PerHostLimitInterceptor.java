@@ -0,0 +1,90 @@
+package com.ai.http;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps concurrent exchanges per upstream host — the per-host "pool" of the shared client.
+ *
+ * The JDK HttpClient keeps its own keep-alive connections (and multiplexes HTTP/2 streams)
+ * but exposes no per-host limit, so callers take a slot here before sending. The slot is held
+ * until the response is closed, which covers streamed bodies too.
+ */
+public class PerHostLimitInterceptor implements ClientHttpRequestInterceptor {
+
+    private final int maxPerHost;
+    private final Duration acquireTimeout;
+    private final MeterRegistry registry;
+    private final Map<String, HostPool> pools = new ConcurrentHashMap<>();
+
+    public PerHostLimitInterceptor(int maxPerHost, Duration acquireTimeout, MeterRegistry registry) {
+        this.maxPerHost = maxPerHost;
+        this.acquireTimeout = acquireTimeout;
+        this.registry = registry;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+
+        HostPool pool = pools.computeIfAbsent(request.getURI().getHost(), HostPool::new);
+        pool.acquire();
+
+        try {
+            return new ReleasingResponse(execution.execute(request, body), pool.permits::release);
+        } catch (IOException | RuntimeException e) {
+            pool.permits.release();
+            throw e;
+        }
+    }
+
+    // ── Per-Host Slot Pool ───────────────────────────────────────────────────────
+    private class HostPool {
+        private final Semaphore permits = new Semaphore(maxPerHost, true);
+        private final Timer waitTimer;
+        private final Counter timeouts;
+
+        private HostPool(String host) {
+            String tagHost = host != null ? host : "unknown";
+            this.waitTimer = Timer.builder("http.client.pool.wait").tag("host", tagHost).register(registry);
+            this.timeouts  = Counter.builder("http.client.pool.timeouts").tag("host", tagHost).register(registry);
+
+            Gauge.builder("http.client.pool.in-use", permits, p -> maxPerHost - p.availablePermits())
+                    .tag("host", tagHost).register(registry);
+            Gauge.builder("http.client.pool.utilization", permits,
+                            p -> (maxPerHost - p.availablePermits()) / (double) maxPerHost)
+                    .tag("host", tagHost).register(registry);
+            Gauge.builder("http.client.pool.pending", permits, Semaphore::getQueueLength)
+                    .tag("host", tagHost).register(registry);
+        }
+
+        private void acquire() throws IOException {
+            long start = System.nanoTime();
+            try {
+                boolean acquired = permits.tryAcquire(acquireTimeout.toNanos(), TimeUnit.NANOSECONDS);
+                waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                if (!acquired) {
+                    timeouts.increment();
+                    throw new IOException("Timed out after " + acquireTimeout.toMillis()
+                            + " ms waiting for a connection slot");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted waiting for a connection slot", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.ai.mcq;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local bank of every well-formed question the model has generated, so repeat quizzes on a
+ * topic can be served without an upstream call.
+ *
+ * Questions are shelved by normalized (topic, difficulty) and de-duplicated by a 64-bit hash
+ * of their text with case, accents, punctuation and spacing stripped. Each question keeps its
+ * position on the shelf, so what a session has already been given is one {@link BitSet} per
+ * shelf; {@link #take} hands out the first positions that are still clear. The bank is
+ * append-only and mirrored to a JSON-lines file, reloaded on startup.
+ *
+ * mcq.bank.requests{result=full|partial|miss} / mcq.bank.questions{source=bank|model}
+ * mcq.bank.hit.ratio — share of served questions that came from the bank / mcq.bank.size
+ */
+@Component
+public class McqBank {
+
+    private static final Logger log = LoggerFactory.getLogger(McqBank.class);
+
+    record Key(String topic, String difficulty) {
+        static Key of(String topic, String difficulty) {
+            return new Key(McqKey.normalize(topic), McqKey.normalize(difficulty));
+        }
+    }
+
+    // Positions never move, so a session's BitSet stays valid as the shelf grows
+    private static final class Shelf {
+        private final List<JsonNode> questions = new ArrayList<>();
+        private final Map<Long, Integer> positions = new HashMap<>();
+    }
+
+    private final boolean enabled;
+    private final int maxPerShelf;
+    private final Path file;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<Key, Shelf> shelves = new ConcurrentHashMap<>();
+    private final Cache<String, Map<Key, BitSet>> seen;
+    private final AtomicLong size = new AtomicLong();
+    private BufferedWriter writer;
+
+    private final MeterRegistry registry;
+    private final Counter fromBank;
+    private final Counter fromModel;
+
+    public McqBank(
+            MeterRegistry registry,
+            @Value("${mcq.bank.enabled:true}") boolean enabled,
+            @Value("${mcq.bank.file:}") String file,
+            @Value("${mcq.bank.max-per-topic:1000}") int maxPerShelf,
+            @Value("${mcq.bank.seen-ttl:12h}") Duration seenTtl,
+            @Value("${mcq.bank.max-sessions:100000}") long maxSessions
+    ) {
+        this.registry    = registry;
+        this.enabled     = enabled;
+        this.maxPerShelf = maxPerShelf;
+        this.file        = file.isBlank() ? null : Path.of(file);
+        this.seen        = Caffeine.newBuilder()
+                .expireAfterAccess(seenTtl)
+                .maximumSize(maxSessions)
+                .build();
+
+        if (enabled && this.file != null) load();
+
+        this.fromBank  = Counter.builder("mcq.bank.questions").tag("source", "bank").register(registry);
+        this.fromModel = Counter.builder("mcq.bank.questions").tag("source", "model").register(registry);
+        Gauge.builder("mcq.bank.hit.ratio", this, McqBank::hitRatio).register(registry);
+        Gauge.builder("mcq.bank.size", size, AtomicLong::get).register(registry);
+    }
+
+    // ── Serving ──────────────────────────────────────────────────────────────────
+    /**
+     * Up to {@code count} banked questions this session has not been given yet, marked as
+     * given. Returns copies, so callers may renumber them.
+     */
+    public List<JsonNode> take(String sessionId, String topic, String difficulty, int count) {
+        if (!enabled || count <= 0) return List.of();
+        Key key = Key.of(topic, difficulty);
+        Shelf shelf = shelves.get(key);
+        if (shelf == null) return List.of();
+
+        BitSet given = given(sessionId, key);
+        List<JsonNode> taken = new ArrayList<>(count);
+        synchronized (shelf) {
+            synchronized (given) {
+                for (int i = given.nextClearBit(0); i < shelf.questions.size() && taken.size() < count;
+                     i = given.nextClearBit(i + 1)) {
+                    given.set(i);
+                    taken.add(shelf.questions.get(i).deepCopy());
+                }
+            }
+        }
+        return taken;
+    }
+
+    /**
+     * Gives back questions from {@link #take} that never reached the student (the request
+     * failed after taking them), so the session can be given them again.
+     */
+    public void release(String sessionId, String topic, String difficulty, List<JsonNode> taken) {
+        if (!enabled || taken.isEmpty()) return;
+        Key key = Key.of(topic, difficulty);
+        Shelf shelf = shelves.get(key);
+        if (shelf == null) return;
+
+        BitSet given = given(sessionId, key);
+        synchronized (shelf) {
+            synchronized (given) {
+                for (JsonNode question : taken) {
+                    Integer position = shelf.positions.get(hash(question.path("question").asText()));
+                    if (position != null) given.clear(position);
+                }
+            }
+        }
+    }
+
+    /** How many banked questions on this shelf the session has not been given yet. */
+    public int unseen(String sessionId, String topic, String difficulty) {
+        if (!enabled) return 0;
+        Key key = Key.of(topic, difficulty);
+        Shelf shelf = shelves.get(key);
+        if (shelf == null) return 0;
+
+        BitSet given = given(sessionId, key);
+        synchronized (shelf) {
+            synchronized (given) {
+                return shelf.questions.size() - given.get(0, shelf.questions.size()).cardinality();
+            }
+        }
+    }
+
+    /** Records how a request was served, for the hit ratio. */
+    public void served(int banked, int generated) {
+        fromBank.increment(banked);
+        fromModel.increment(generated);
+        String result = generated == 0 ? "full" : banked > 0 ? "partial" : "miss";
+        registry.counter("mcq.bank.requests", "result", result).increment();
+    }
+
+    private double hitRatio() {
+        double total = fromBank.count() + fromModel.count();
+        return total == 0 ? 0 : fromBank.count() / total;
+    }
+
+    // ── Storing ──────────────────────────────────────────────────────────────────
+    /**
+     * Banks the well-formed, previously unseen questions of a generated set. All of them —
+     * including ones already on the shelf — count as given to {@code sessionId}, if any.
+     */
+    public void store(String sessionId, String topic, String difficulty, List<JsonNode> questions) {
+        if (!enabled || questions.isEmpty()) return;
+        Key key = Key.of(topic, difficulty);
+        Shelf shelf = shelves.computeIfAbsent(key, k -> new Shelf());
+        BitSet given = sessionId != null ? given(sessionId, key) : null;
+
+        List<JsonNode> added = new ArrayList<>();
+        synchronized (shelf) {
+            for (JsonNode question : questions) {
+                if (!valid(question)) continue;
+                int before = shelf.questions.size();
+                int position = add(shelf, question);
+                if (position < 0) continue;
+                if (position >= before) added.add(shelf.questions.get(position));
+                if (given != null) {
+                    synchronized (given) {
+                        given.set(position);
+                    }
+                }
+            }
+        }
+        if (!added.isEmpty()) append(key, added);
+    }
+
+    // Position of the question on the shelf (existing or new), or -1 if it can't be banked
+    private int add(Shelf shelf, JsonNode question) {
+        long hash = hash(question.path("question").asText());
+        Integer existing = shelf.positions.get(hash);
+        if (existing != null) return existing;
+        if (shelf.questions.size() >= maxPerShelf) return -1;
+
+        shelf.questions.add(question.deepCopy());
+        shelf.positions.put(hash, shelf.questions.size() - 1);
+        size.incrementAndGet();
+        return shelf.questions.size() - 1;
+    }
+
+    private BitSet given(String sessionId, Key key) {
+        return seen.get(sessionId, id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key, k -> new BitSet());
+    }
+
+    // ── Validation / Hashing ─────────────────────────────────────────────────────
+    // Question text, at least two options, and an answer that is one of them
+    static boolean valid(JsonNode question) {
+        if (!(question instanceof ObjectNode)) return false;
+        if (question.path("question").asText("").isBlank()) return false;
+        JsonNode options = question.path("options");
+        if (!options.isObject() || options.size() < 2) return false;
+        return options.has(question.path("correctAnswer").asText("").trim());
+    }
+
+    /** FNV-1a over the question's letters and digits, so trivial rewordings collide. */
+    static long hash(String text) {
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFKD).toLowerCase(Locale.ROOT);
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (!Character.isLetterOrDigit(c)) continue;
+            hash ^= c;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // ── Persistence ──────────────────────────────────────────────────────────────
+    private void load() {
+        if (Files.exists(file)) {
+            try {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    if (line.isBlank()) continue;
+                    try {
+                        JsonNode entry = objectMapper.readTree(line);
+                        JsonNode question = entry.path("question");
+                        if (!valid(question)) continue;
+                        Shelf shelf = shelves.computeIfAbsent(
+                                new Key(entry.path("topic").asText(), entry.path("difficulty").asText()),
+                                k -> new Shelf());
+                        add(shelf, question);
+                    } catch (IOException e) {
+                        // A torn last line from a crash; everything before it is intact
+                    }
+                }
+            } catch (IOException e) {
+                log.atWarn().setCause(e).addKeyValue("file", file).log("MCQ bank could not be loaded");
+            }
+        }
+        log.atInfo().addKeyValue("questions", size.get()).addKeyValue("shelves", shelves.size())
+                .log("MCQ bank loaded");
+    }
+
+    private synchronized void append(Key key, List<JsonNode> questions) {
+        if (file == null) return;
+        try {
+            if (writer == null) {
+                if (file.getParent() != null) Files.createDirectories(file.getParent());
+                writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            for (JsonNode question : questions) {
+                ObjectNode entry = objectMapper.createObjectNode()
+                        .put("topic", key.topic())
+                        .put("difficulty", key.difficulty());
+                entry.set("question", question);
+                writer.write(objectMapper.writeValueAsString(entry));
+                writer.newLine();
+            }
+            writer.flush();
+        } catch (IOException e) {
+            // The bank still works in memory; it just won't survive a restart
+            log.atWarn().setCause(e).addKeyValue("file", file).log("MCQ bank write failed");
+        }
+    }
+
+    @PreDestroy
+    synchronized void close() {
+        if (writer == null) return;
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.atWarn().setCause(e).addKeyValue("file", file).log("MCQ bank could not be closed");
+        }
+        writer = null;
+    }
+}
@@ -0,0 +1,180 @@
+package com.ai.mcq;
+
+import com.ai.service.OpenRouterService;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Generates question sets for several topics in one request.
+ *
+ * Every item is split into chunks of at most {@code mcq.batch.chunk-size} questions, and all
+ * chunks of all items are submitted at once to the bounded batch executor, so a 10-topic quiz
+ * costs roughly one upstream round trip instead of ten. Chunks are stateless calls; merged
+ * sets are renumbered and de-duplicated, then recorded in the caller's session as one turn
+ * per item and added to the {@link McqBank}. Whatever has not finished by the deadline is
+ * cancelled and reported per item, so one slow topic never holds back the rest.
+ *
+ * mcq.batch.items{status=ok|partial|timeout|error}
+ */
+@Component
+public class McqBatchGenerator {
+
+    /** One requested set. */
+    public record Item(String topic, int count, String difficulty) {
+    }
+
+    /** Outcome for one item — questions for ok / partial, error for the rest. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record ItemResult(String topic, int count, String difficulty, String status,
+                             List<JsonNode> questions, String error) {
+    }
+
+    private final OpenRouterService service;
+    private final McqGenerator mcqGenerator;
+    private final McqBank bank;
+    private final AsyncTaskExecutor executor;
+    private final MeterRegistry registry;
+    private final int chunkSize;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public McqBatchGenerator(OpenRouterService service,
+                             McqGenerator mcqGenerator,
+                             McqBank bank,
+                             @Qualifier("mcqBatchExecutor") AsyncTaskExecutor executor,
+                             MeterRegistry registry,
+                             @Value("${mcq.batch.chunk-size:10}") int chunkSize) {
+        this.service      = service;
+        this.mcqGenerator = mcqGenerator;
+        this.bank         = bank;
+        this.executor     = executor;
+        this.registry     = registry;
+        this.chunkSize    = Math.max(1, chunkSize);
+    }
+
+    public List<ItemResult> generate(String sessionId, List<Item> items, Duration deadline) {
+        long deadlineNanos = System.nanoTime() + deadline.toNanos();
+
+        // Submit every chunk of every item up front; the executor bounds how many run at once
+        List<List<Future<List<JsonNode>>>> pending = new ArrayList<>(items.size());
+        for (Item item : items) {
+            pending.add(submitChunks(sessionId, item));
+        }
+
+        List<ItemResult> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            ItemResult result = collect(items.get(i), pending.get(i), deadlineNanos);
+            registry.counter("mcq.batch.items", "status", result.status()).increment();
+            results.add(result);
+        }
+
+        for (ItemResult result : results) {
+            if (result.questions() == null) continue;
+            recordTurn(sessionId, result);
+            bank.store(sessionId, result.topic(), result.difficulty(), result.questions());
+        }
+        return results;
+    }
+
+    // ── Chunking ─────────────────────────────────────────────────────────────────
+    private List<Future<List<JsonNode>>> submitChunks(String sessionId, Item item) {
+        int parts = (item.count() + chunkSize - 1) / chunkSize;
+        List<Future<List<JsonNode>>> chunks = new ArrayList<>(parts);
+
+        for (int part = 1; part <= parts; part++) {
+            int size = Math.min(chunkSize, item.count() - (part - 1) * chunkSize);
+            String prompt = buildChunkPrompt(item, size, part, parts);
+            try {
+                chunks.add(executor.submit(() -> mcqGenerator.parse(service.callStateless(sessionId, prompt, "mcq"))));
+            } catch (TaskRejectedException e) {
+                chunks.add(CompletableFuture.failedFuture(
+                        new IllegalStateException("MCQ batch executor is saturated")));
+            }
+        }
+        return chunks;
+    }
+
+    // Parts of the same item ask for different subtopics so merged sets don't repeat themselves
+    static String buildChunkPrompt(Item item, int size, int part, int parts) {
+        String prompt = McqGenerator.buildPrompt(item.topic(), String.valueOf(size), item.difficulty());
+        if (parts == 1) return prompt;
+        return prompt + String.format(
+                " This is part %d of %d of a larger set on this topic; cover different subtopics than the other parts.",
+                part, parts);
+    }
+
+    // ── Collecting ───────────────────────────────────────────────────────────────
+    private ItemResult collect(Item item, List<Future<List<JsonNode>>> chunks, long deadlineNanos) {
+        List<JsonNode> questions = new ArrayList<>(item.count());
+        String error = null;
+        boolean timedOut = false;
+
+        for (Future<List<JsonNode>> chunk : chunks) {
+            try {
+                long remaining = deadlineNanos - System.nanoTime();
+                questions.addAll(chunk.get(Math.max(0, remaining), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                chunk.cancel(true);
+                timedOut = true;
+            } catch (InterruptedException e) {
+                chunks.forEach(c -> c.cancel(true));
+                Thread.currentThread().interrupt();
+                return new ItemResult(item.topic(), item.count(), item.difficulty(), "error", null, "Interrupted");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                error = String.valueOf(cause.getMessage());
+            }
+        }
+
+        List<JsonNode> merged = renumber(questions);
+        boolean complete = !timedOut && error == null;
+
+        if (complete) {
+            return new ItemResult(item.topic(), item.count(), item.difficulty(), "ok", merged, null);
+        }
+        String reason = timedOut ? "Deadline exceeded" : error;
+        if (!merged.isEmpty()) {
+            return new ItemResult(item.topic(), item.count(), item.difficulty(), "partial", merged, reason);
+        }
+        return new ItemResult(item.topic(), item.count(), item.difficulty(),
+                timedOut ? "timeout" : "error", null, reason);
+    }
+
+    // Drops repeated question text across chunks, then numbers the set 1..N
+    static List<JsonNode> renumber(List<JsonNode> questions) {
+        Set<String> seen = new HashSet<>();
+        List<JsonNode> merged = new ArrayList<>(questions.size());
+
+        for (JsonNode question : questions) {
+            String text = question.path("question").asText("").trim().toLowerCase(Locale.ROOT);
+            if (!text.isEmpty() && !seen.add(text)) continue;
+
+            if (question instanceof ObjectNode node) {
+                node.put("questionNo", merged.size() + 1);
+            }
+            merged.add(question);
+        }
+        return merged;
+    }
+
+    private void recordTurn(String sessionId, ItemResult result) {
+        try {
+            String prompt = McqGenerator.buildPrompt(result.topic(), String.valueOf(result.count()), result.difficulty());
+            service.recordTurn(sessionId, prompt, objectMapper.writeValueAsString(result.questions()));
+        } catch (JsonProcessingException e) {
+            // History is best-effort; the caller already has the questions
+        }
+    }
+}
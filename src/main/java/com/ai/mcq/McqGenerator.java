@@ -0,0 +1,214 @@
+package com.ai.mcq;
+
+import com.ai.service.OpenRouterMetrics;
+import com.ai.service.OpenRouterService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Generates and parses MCQ batches, coalescing identical concurrent requests.
+ *
+ * When a class starts a quiz, many students ask for the same (topic, count, difficulty) at
+ * once. The first request runs one stateless upstream call — the set is shared, so it must not
+ * depend on any one student's history — and the others join it and get the same parsed
+ * questions. Every caller, the first included, records the turn in its own session memory.
+ *
+ * Before any of that, the request is served from the {@link McqBank} as far as it can be with
+ * questions this session hasn't been given; only the shortfall goes to the model, and what
+ * the model returns is banked for the next student.
+ *
+ * Once a batch is served, {@link McqLookahead} may generate the session's next one in the
+ * background; a matching follow-up request is answered from it without an upstream wait.
+ */
+@Component
+public class McqGenerator {
+
+    /** Raw model reply plus the questions parsed from it. */
+    public record McqResult(String raw, List<JsonNode> questions) {
+    }
+
+    private final OpenRouterService service;
+    private final OpenRouterMetrics metrics;
+    private final McqBank bank;
+    private final McqLookahead lookahead;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<McqKey, CompletableFuture<McqResult>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter leaders;
+    private final Counter joined;
+
+    public McqGenerator(OpenRouterService service, OpenRouterMetrics metrics, McqBank bank,
+                        McqLookahead lookahead, MeterRegistry registry) {
+        this.service   = service;
+        this.metrics   = metrics;
+        this.bank      = bank;
+        this.lookahead = lookahead;
+        this.leaders = Counter.builder("mcq.coalesce.requests").tag("result", "leader").register(registry);
+        this.joined  = Counter.builder("mcq.coalesce.requests").tag("result", "joined").register(registry);
+    }
+
+    public List<JsonNode> generate(String sessionId, String topic, String count, String difficulty) throws Exception {
+        McqKey key = McqKey.of(topic, count, difficulty);
+        List<JsonNode> questions;
+
+        List<JsonNode> prefetched = lookahead.claim(sessionId, key);
+        if (prefetched != null) {
+            service.recordTurn(sessionId, buildPrompt(topic, count, difficulty), objectMapper.writeValueAsString(prefetched));
+            bank.store(sessionId, topic, difficulty, prefetched);
+            bank.served(0, prefetched.size());
+            questions = McqBatchGenerator.renumber(prefetched);
+        } else {
+            questions = serve(sessionId, topic, count, difficulty);
+        }
+
+        // Nothing to prefetch if the bank can already cover the next batch
+        if (bank.unseen(sessionId, topic, difficulty) < key.count()) {
+            String nextPrompt = buildPromptExcluding(topic, count, difficulty, questions);
+            lookahead.schedule(sessionId, key, () -> parse(service.callSpeculative(sessionId, nextPrompt, "mcq")));
+        }
+        return questions;
+    }
+
+    private List<JsonNode> serve(String sessionId, String topic, String count, String difficulty) throws Exception {
+        int wanted = McqKey.parseCount(count);
+        List<JsonNode> banked = bank.take(sessionId, topic, difficulty, wanted);
+        if (banked.isEmpty()) {
+            List<JsonNode> generated = generateUpstream(sessionId, topic, count, difficulty);
+            bank.store(sessionId, topic, difficulty, generated);
+            bank.served(0, generated.size());
+            return generated;
+        }
+
+        String bankedCount = String.valueOf(banked.size());
+        if (banked.size() >= wanted) {
+            service.recordTurn(sessionId, buildPrompt(topic, bankedCount, difficulty), objectMapper.writeValueAsString(banked));
+            bank.served(banked.size(), 0);
+            return McqBatchGenerator.renumber(banked);
+        }
+
+        // The banked questions only count as given, and go into history, once the shortfall arrives.
+        // The shortfall is told what the bank already supplied, or renumber would drop repeats
+        // and leave the student short; that prompt is this session's own, so it isn't coalesced.
+        String shortfall = String.valueOf(wanted - banked.size());
+        String aiResponse;
+        List<JsonNode> generated;
+        try {
+            aiResponse = service.callStateless(sessionId,
+                    buildPromptExcluding(topic, shortfall, difficulty, banked), "mcq");
+            generated = parse(aiResponse);
+        } catch (Exception e) {
+            bank.release(sessionId, topic, difficulty, banked);
+            throw e;
+        }
+        service.recordTurn(sessionId, buildPrompt(topic, shortfall, difficulty), aiResponse);
+        service.recordTurn(sessionId, buildPrompt(topic, bankedCount, difficulty), objectMapper.writeValueAsString(banked));
+        bank.store(sessionId, topic, difficulty, generated);
+        bank.served(banked.size(), generated.size());
+
+        // Stored nodes may be shelved as-is; renumber copies
+        List<JsonNode> merged = new ArrayList<>(banked);
+        generated.forEach(q -> merged.add(q.deepCopy()));
+        return McqBatchGenerator.renumber(merged);
+    }
+
+    private List<JsonNode> generateUpstream(String sessionId, String topic, String count, String difficulty) throws Exception {
+        String prompt = buildPrompt(topic, count, difficulty);
+        McqKey key = McqKey.of(topic, count, difficulty);
+
+        CompletableFuture<McqResult> created = new CompletableFuture<>();
+        CompletableFuture<McqResult> existing = inFlight.putIfAbsent(key, created);
+
+        if (existing != null) {
+            joined.increment();
+            McqResult shared = await(existing);
+            service.recordTurn(sessionId, prompt, shared.raw());
+            return shared.questions();
+        }
+
+        leaders.increment();
+        try {
+            String aiResponse = service.callStateless(sessionId, prompt, "mcq");
+            created.complete(new McqResult(aiResponse, parse(aiResponse)));
+        } catch (Exception e) {
+            created.completeExceptionally(e);
+        } finally {
+            inFlight.remove(key, created);
+        }
+        McqResult result = await(created);
+        service.recordTurn(sessionId, prompt, result.raw());
+        return result.questions();
+    }
+
+    public static String buildPrompt(String topic, String count, String difficulty) {
+        return String.format(
+                "Generate exactly %s MCQ questions on the topic: '%s'. Difficulty level: %s.",
+                count, topic, difficulty
+        );
+    }
+
+    // Stateless calls are told what the student was just given (lookahead, bank shortfall)
+    static String buildPromptExcluding(String topic, String count, String difficulty, List<JsonNode> previous) {
+        StringBuilder prompt = new StringBuilder(buildPrompt(topic, count, difficulty));
+        List<String> asked = previous.stream()
+                .map(q -> q.path("question").asText("").trim())
+                .filter(text -> !text.isEmpty())
+                .limit(20)
+                .toList();
+        if (!asked.isEmpty()) {
+            prompt.append(" Do not repeat any of these questions: ").append(String.join(" | ", asked));
+        }
+        return prompt.toString();
+    }
+
+    // ── Parsing ──────────────────────────────────────────────────────────────────
+    public List<JsonNode> parse(String aiResponse) throws JsonProcessingException {
+        Timer.Sample sample = metrics.start();
+        try {
+            return doParse(aiResponse);
+        } finally {
+            metrics.phase("mcq_parse", "mcq", sample);
+        }
+    }
+
+    private List<JsonNode> doParse(String aiResponse) throws JsonProcessingException {
+        // Strip markdown code fences if model wraps JSON
+        String cleaned = aiResponse.trim()
+                .replaceAll("(?s)```json\\s*", "")
+                .replaceAll("(?s)```\\s*", "")
+                .trim();
+
+        try {
+            JsonNode parsed = objectMapper.readTree(cleaned);
+            List<JsonNode> questions = new ArrayList<>();
+            if (parsed.isArray()) parsed.forEach(questions::add);
+            else questions.add(parsed);
+            return questions;
+        } catch (JsonProcessingException e) {
+            // One bad question shouldn't lose the batch — salvage the well-formed ones
+            List<JsonNode> salvaged = new ArrayList<>();
+            new McqStreamParser(objectMapper, salvaged::add).feed(aiResponse);
+            if (salvaged.isEmpty()) throw e;
+            return salvaged;
+        }
+    }
+
+    private static McqResult await(CompletableFuture<McqResult> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+}
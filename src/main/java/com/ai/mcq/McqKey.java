@@ -0,0 +1,25 @@
+package com.ai.mcq;
+
+import java.util.Locale;
+
+/**
+ * Identity of an MCQ generation request — normalized (topic, count, difficulty).
+ */
+public record McqKey(String topic, int count, String difficulty) {
+
+    public static McqKey of(String topic, String count, String difficulty) {
+        return new McqKey(normalize(topic), parseCount(count), normalize(difficulty));
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    static int parseCount(String count) {
+        try {
+            return Integer.parseInt(count.trim());
+        } catch (RuntimeException e) {
+            return 5;
+        }
+    }
+}
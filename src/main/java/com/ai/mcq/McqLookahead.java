@@ -0,0 +1,163 @@
+package com.ai.mcq;
+
+import com.ai.service.UpstreamLimiter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * One speculative "next batch" per session, generated while the student works through the
+ * current one.
+ *
+ * After /api/mcq serves a batch, {@link #schedule} starts generating the next one for the
+ * same (topic, count, difficulty) on the low-priority lookahead pool — but only while the
+ * upstream limiter has spare capacity, and its upstream call queues in the limiter's
+ * low-weight speculative mode, so live requests never queue behind speculation. The
+ * follow-up request {@link #claim}s it: ready batches return at once, one already running is
+ * awaited, and one still queued is dropped in favour of a live call.
+ *
+ * A slot is cancelled when the session goes idle for {@code mcq.lookahead.ttl}, when the next
+ * request — /api/mcq, or via {@link #discardUnless} /mcq/stream and /mcq/batch — asks for a
+ * different topic, count or difficulty, or when it is replaced.
+ *
+ * mcq.lookahead{result=scheduled|skipped_busy|rejected|hit|waited|discarded|failed|expired}
+ * mcq.lookahead.slots
+ */
+@Component
+public class McqLookahead {
+
+    private static final class Slot {
+        private final McqKey key;
+        private final FutureTask<List<JsonNode>> task;
+        private volatile boolean started;
+
+        private Slot(McqKey key, Callable<List<JsonNode>> generate) {
+            this.key = key;
+            this.task = new FutureTask<>(() -> {
+                started = true;
+                return generate.call();
+            });
+        }
+    }
+
+    private final boolean enabled;
+    private final double maxUtilization;
+    private final Duration maxWait;
+    private final AsyncTaskExecutor executor;
+    private final UpstreamLimiter limiter;
+    private final MeterRegistry registry;
+    private final Cache<String, Slot> slots;
+
+    public McqLookahead(
+            @Qualifier("mcqLookaheadExecutor") AsyncTaskExecutor executor,
+            UpstreamLimiter limiter,
+            MeterRegistry registry,
+            @Value("${mcq.lookahead.enabled:true}") boolean enabled,
+            @Value("${mcq.lookahead.ttl:5m}") Duration ttl,
+            @Value("${mcq.lookahead.max-sessions:1000}") long maxSessions,
+            @Value("${mcq.lookahead.max-utilization:0.5}") double maxUtilization,
+            @Value("${mcq.lookahead.max-wait:30s}") Duration maxWait
+    ) {
+        this.executor       = executor;
+        this.limiter        = limiter;
+        this.registry       = registry;
+        this.enabled        = enabled;
+        this.maxUtilization = maxUtilization;
+        this.maxWait        = maxWait;
+
+        // Anything other than a claim (explicit removal) means the batch will never be used
+        this.slots = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSessions)
+                .removalListener((String id, Slot slot, RemovalCause cause) -> {
+                    if (slot == null || cause == RemovalCause.EXPLICIT) return;
+                    if (slot.task.cancel(true)) record("expired");
+                })
+                .scheduler(Scheduler.systemScheduler())
+                .build();
+        Gauge.builder("mcq.lookahead.slots", slots, Cache::estimatedSize).register(registry);
+    }
+
+    // ── Claim ────────────────────────────────────────────────────────────────────
+    /** The prefetched batch for this request, or null if there is none worth using. */
+    public List<JsonNode> claim(String sessionId, McqKey key) {
+        if (!enabled) return null;
+        Slot slot = slots.asMap().remove(sessionId);
+        if (slot == null) return null;
+
+        if (!slot.key.equals(key) || (!slot.started && !slot.task.isDone())) {
+            // Different quiz, or still queued — a live call is the faster path
+            slot.task.cancel(true);
+            record("discarded");
+            return null;
+        }
+
+        String result = slot.task.isDone() ? "hit" : "waited";
+        try {
+            List<JsonNode> questions = slot.task.get(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+            if (questions == null || questions.isEmpty()) {
+                record("failed");
+                return null;
+            }
+            record(result);
+            return questions;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            slot.task.cancel(true);
+            return null;
+        } catch (ExecutionException | CancellationException | TimeoutException e) {
+            slot.task.cancel(true);
+            record("failed");
+            return null;
+        }
+    }
+
+    /** Cancels the session's prefetch unless it is for {@code current}; null cancels any. */
+    public void discardUnless(String sessionId, McqKey current) {
+        if (!enabled) return;
+        Slot slot = slots.getIfPresent(sessionId);
+        if (slot == null || slot.key.equals(current)) return;
+        if (slots.asMap().remove(sessionId, slot)) {
+            slot.task.cancel(true);
+            record("discarded");
+        }
+    }
+
+    // ── Schedule ─────────────────────────────────────────────────────────────────
+    /** Starts generating the session's next batch in the background, replacing any earlier one. */
+    public void schedule(String sessionId, McqKey key, Callable<List<JsonNode>> generate) {
+        if (!enabled) return;
+        if (!limiter.hasHeadroom(maxUtilization)) {
+            record("skipped_busy");
+            return;
+        }
+
+        // Capacity is checked again when a thread picks it up; the queue may have sat a while
+        Slot slot = new Slot(key, () -> limiter.hasHeadroom(maxUtilization) ? generate.call() : null);
+        slots.put(sessionId, slot);
+        try {
+            executor.execute(slot.task);
+            record("scheduled");
+        } catch (TaskRejectedException e) {
+            slots.asMap().remove(sessionId, slot);
+            record("rejected");
+        }
+    }
+
+    private void record(String result) {
+        registry.counter("mcq.lookahead", "result", result).increment();
+    }
+}
@@ -0,0 +1,95 @@
+package com.ai.mcq;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.function.Consumer;
+
+/**
+ * Incremental parser for the MCQ JSON array as it streams in from the model.
+ *
+ * Feed it raw content deltas; it tracks brace depth (ignoring braces inside strings) and hands
+ * each top-level {...} object to the consumer as soon as it closes. Anything between objects —
+ * code fences, '[', ',', ']' — is ignored. Each object is parsed on its own, so a malformed
+ * question is skipped without losing the ones around it.
+ */
+public class McqStreamParser {
+
+    private final ObjectMapper objectMapper;
+    private final Consumer<JsonNode> onQuestion;
+
+    private final StringBuilder current = new StringBuilder();
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+
+    private int emitted;
+    private int skipped;
+
+    public McqStreamParser(ObjectMapper objectMapper, Consumer<JsonNode> onQuestion) {
+        this.objectMapper = objectMapper;
+        this.onQuestion = onQuestion;
+    }
+
+    public void feed(CharSequence chunk) {
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+
+            if (depth == 0) {
+                if (c == '{') {
+                    depth = 1;
+                    current.setLength(0);
+                    current.append(c);
+                }
+                continue;
+            }
+
+            current.append(c);
+
+            if (inString) {
+                if (escaped)        escaped = false;
+                else if (c == '\\') escaped = true;
+                else if (c == '"')  inString = false;
+                continue;
+            }
+
+            switch (c) {
+                case '"' -> inString = true;
+                case '{' -> depth++;
+                case '}' -> {
+                    if (--depth == 0) emit();
+                }
+                default -> { }
+            }
+        }
+    }
+
+    private void emit() {
+        try {
+            JsonNode question = objectMapper.readTree(current.toString());
+            if (isQuestion(question)) {
+                emitted++;
+                onQuestion.accept(question);
+            } else {
+                skipped++;
+            }
+        } catch (Exception e) {
+            skipped++;
+        }
+        current.setLength(0);
+    }
+
+    private static boolean isQuestion(JsonNode node) {
+        return node.hasNonNull("question")
+                && node.path("options").isObject()
+                && node.hasNonNull("correctAnswer");
+    }
+
+    public int getEmitted() {
+        return emitted;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+}
@@ -0,0 +1,280 @@
+package com.ai.memory;
+
+import com.ai.config.SystemPrompts;
+import com.ai.model.ChatMessage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fits session history into a per-mode prompt-token budget before it is sent upstream.
+ *
+ * Newest turns are kept verbatim until the budget ({@code context.budget.<mode>}) is used up;
+ * older turns are represented by a rolling summary that is regenerated off the request path
+ * on the summary executor, so a request never waits on it — it sends the latest summary
+ * available. MCQ JSON replies are the largest entries in any history, so every one except
+ * the newest (which follow-ups like "explain question 3" refer to) is reduced to its question
+ * lines.
+ *
+ * context.tokens{mode,stage=raw|sent} / context.tokens.saved{mode} — per request
+ * context.summary.runs{outcome}
+ */
+@Component
+public class ContextManager {
+
+    private static final Logger log = LoggerFactory.getLogger(ContextManager.class);
+
+    private static final Pattern MCQ_QUESTION = Pattern.compile("\"question\"\\s*:\\s*\"((?:[^\"\\\\]|\\\\.)*)\"");
+    private static final int MCQ_QUESTION_PREVIEW_CHARS = 100;
+
+    private final Environment environment;
+    private final AsyncTaskExecutor summaryExecutor;
+    private final MeterRegistry registry;
+    private final int defaultBudget;
+    private final boolean summaryEnabled;
+
+    private final Cache<String, Summary> summaries;
+    private final Set<String> summarizing = ConcurrentHashMap.newKeySet();
+
+    // Compacted MCQ text per stored message — history messages are immutable, keyed by identity
+    private final Cache<Message, String> compactedMcq = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(10_000)
+            .build();
+
+    public ContextManager(
+            Environment environment,
+            @Qualifier("summaryExecutor") AsyncTaskExecutor summaryExecutor,
+            MeterRegistry registry,
+            @Value("${context.budget.default:2000}") int defaultBudget,
+            @Value("${context.summary.enabled:true}") boolean summaryEnabled,
+            @Value("${chat.memory.idle-ttl:30m}") Duration idleTtl
+    ) {
+        this.environment     = environment;
+        this.summaryExecutor = summaryExecutor;
+        this.registry        = registry;
+        this.defaultBudget   = defaultBudget;
+        this.summaryEnabled  = summaryEnabled;
+        this.summaries       = Caffeine.newBuilder().expireAfterAccess(idleTtl).build();
+    }
+
+    /** Compacted history for one request, plus what the rolling summary still has to absorb. */
+    public record Context(
+            List<ChatMessage> messages,
+            int rawTokens,
+            int sentTokens,
+            String previousSummary,
+            List<ChatMessage> overflow,
+            long overflowEnd
+    ) {
+
+        public boolean needsSummary() {
+            return !overflow.isEmpty();
+        }
+
+        public int savedTokens() {
+            return Math.max(0, rawTokens - sentTokens);
+        }
+    }
+
+    /** Produces the new rolling summary from the previous one and the turns that just aged out. */
+    @FunctionalInterface
+    public interface Summarizer {
+        String summarize(String previousSummary, List<ChatMessage> turns) throws Exception;
+    }
+
+    // coveredUpTo is the anchor() of the last turn folded in
+    private record Summary(String text, long coveredUpTo) {
+    }
+
+    // ── Compaction ───────────────────────────────────────────────────────────────
+    // history and converted are index-aligned: the stored messages and their wire form
+    public Context compact(String sessionId, String systemPromptType,
+                           List<Message> history, List<ChatMessage> converted) {
+        return compact(sessionId, systemPromptType, history, converted, 1.0);
+    }
+
+    // budgetRatio < 1 sends a shorter history while the service is degraded (see DegradationController)
+    public Context compact(String sessionId, String systemPromptType,
+                           List<Message> history, List<ChatMessage> converted, double budgetRatio) {
+        String mode = SystemPrompts.modeOf(systemPromptType);
+        int budget  = (int) (budgetRatio
+                * environment.getProperty("context.budget." + mode, Integer.class, defaultBudget));
+        int n       = history.size();
+
+        // MCQ mode generates a fresh set, so no earlier set needs its options or answers
+        int keepBlob = -1;
+        if (!"mcq".equals(mode)) {
+            for (int i = n - 1; i >= 0; i--) {
+                if (isMcqBlob(converted.get(i).content())) {
+                    keepBlob = i;
+                    break;
+                }
+            }
+        }
+
+        List<ChatMessage> messages = new ArrayList<>(converted);
+        int[] tokens = new int[n];
+        int rawTokens = 0;
+        for (int i = 0; i < n; i++) {
+            ChatMessage message = messages.get(i);
+            rawTokens += TokenEstimator.estimate(message.content());
+            if (i != keepBlob && isMcqBlob(message.content())) {
+                message = ChatMessage.of(message.role(), compactMcq(history.get(i), message.content()));
+                messages.set(i, message);
+            }
+            tokens[i] = TokenEstimator.estimate(message.content());
+        }
+
+        // Fill the budget newest-first; the current user turn is always sent
+        int sentTokens = 0;
+        int cut = n;
+        while (cut > 0 && (cut == n || sentTokens + tokens[cut - 1] <= budget)) {
+            sentTokens += tokens[--cut];
+        }
+
+        Summary summary = cut > 0 ? summaries.getIfPresent(sessionId) : null;
+        List<ChatMessage> sent = new ArrayList<>(n - cut + 1);
+        if (summary != null) {
+            ChatMessage summaryMessage = ChatMessage.of("system",
+                    "Summary of the earlier conversation:\n" + summary.text());
+            sent.add(summaryMessage);
+            sentTokens += TokenEstimator.estimate(summaryMessage.content());
+        }
+        sent.addAll(messages.subList(cut, n));
+
+        // Turns that dropped out of the budget but are not yet folded into the summary
+        List<ChatMessage> overflow = List.of();
+        long overflowEnd = 0;
+        if (summaryEnabled && cut > 0) {
+            int from = summary != null ? indexOf(history, summary.coveredUpTo()) + 1 : 0;
+            if (from < cut) {
+                overflow = List.copyOf(messages.subList(from, cut));
+                overflowEnd = anchor(history, cut - 1);
+            }
+        }
+
+        Context context = new Context(sent, rawTokens, sentTokens,
+                summary != null ? summary.text() : null, overflow, overflowEnd);
+        record(mode, context);
+        return context;
+    }
+
+    // ── Rolling Summary ──────────────────────────────────────────────────────────
+    // At most one summary per session in flight; a rejected or failed run is retried on the next turn
+    public void summarizeAsync(String sessionId, Context context, Summarizer summarizer) {
+        if (!context.needsSummary() || !summarizing.add(sessionId)) return;
+
+        try {
+            summaryExecutor.execute(() -> {
+                try {
+                    String text = summarizer.summarize(context.previousSummary(), context.overflow());
+                    if (text != null && !text.isBlank()) {
+                        summaries.put(sessionId, new Summary(text.trim(), context.overflowEnd()));
+                    }
+                    summaryRun("ok");
+                } catch (Exception e) {
+                    summaryRun("error");
+                    log.atWarn().addKeyValue("sessionId", sessionId).setCause(e).log("Context summary failed");
+                } finally {
+                    summarizing.remove(sessionId);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            summarizing.remove(sessionId);
+            summaryRun("rejected");
+        }
+    }
+
+    @EventListener
+    public void onSessionCleared(SessionClearedEvent event) {
+        summaries.invalidate(event.sessionId());
+    }
+
+    // ── MCQ Blobs ────────────────────────────────────────────────────────────────
+    static boolean isMcqBlob(String content) {
+        return content != null
+                && content.length() > 200
+                && content.contains("\"questionNo\"")
+                && content.contains("\"options\"");
+    }
+
+    private String compactMcq(Message stored, String content) {
+        return compactedMcq.get(stored, m -> compactMcq(content));
+    }
+
+    static String compactMcq(String content) {
+        StringBuilder sb = new StringBuilder("[Earlier MCQ set, JSON omitted. Questions asked:");
+        Matcher m = MCQ_QUESTION.matcher(content);
+        int count = 0;
+        while (m.find()) {
+            String question = m.group(1);
+            sb.append(' ').append(++count).append(") ")
+                    .append(question, 0, Math.min(question.length(), MCQ_QUESTION_PREVIEW_CHARS));
+        }
+        return count == 0 ? "[Earlier MCQ set, JSON omitted]" : sb.append(']').toString();
+    }
+
+    // ── Helpers ──────────────────────────────────────────────────────────────────
+    // -1 if the anchored turn has rolled out of the window: everything left is after it
+    private static int indexOf(List<Message> history, long anchor) {
+        for (int i = history.size() - 1; i >= 0; i--) {
+            if (anchor(history, i) == anchor) return i;
+        }
+        return -1;
+    }
+
+    // Identifies a turn by its content and the turn before it. Message instances aren't stable
+    // (the mapped store re-decodes a session once it leaves its hot cache), and a short reply
+    // like "ok" alone can repeat.
+    static long anchor(List<Message> history, int i) {
+        long anchor = fingerprint(history.get(i));
+        return i > 0 ? anchor * 31 + fingerprint(history.get(i - 1)) : anchor;
+    }
+
+    private static long fingerprint(Message message) {
+        return ((long) message.getMessageType().ordinal() << 32) ^ (Objects.hashCode(message.getText()) & 0xffffffffL);
+    }
+
+    private void record(String mode, Context context) {
+        tokens(mode, "raw").record(context.rawTokens());
+        tokens(mode, "sent").record(context.sentTokens());
+        DistributionSummary.builder("context.tokens.saved")
+                .tag("mode", mode)
+                .baseUnit("tokens")
+                .register(registry)
+                .record(context.savedTokens());
+    }
+
+    private DistributionSummary tokens(String mode, String stage) {
+        return DistributionSummary.builder("context.tokens")
+                .tag("mode", mode)
+                .tag("stage", stage)
+                .baseUnit("tokens")
+                .register(registry);
+    }
+
+    private void summaryRun(String outcome) {
+        registry.counter("context.summary.runs", "outcome", outcome).increment();
+    }
+}
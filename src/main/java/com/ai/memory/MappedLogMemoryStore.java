@@ -0,0 +1,370 @@
+package com.ai.memory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Restart-safe session history kept off-heap ({@code chat.memory.store=mapped}).
+ *
+ * Messages are appended as UTF-8 records to a memory-mapped {@link SegmentLog}; the heap only
+ * holds, per session, the addresses of its last {@code max-messages} records, plus decoded
+ * messages for recently active sessions. Clears and idle expiry are published as
+ * {@link SessionClearedEvent}s. On startup every segment is scanned and each
+ * session's window is rebuilt from its records in sequence order, honouring clears and
+ * dropping sessions idle longer than the TTL.
+ *
+ * Records that roll out of a window, or belong to cleared/expired sessions, are dead weight.
+ * In the background the oldest sealed segment is compacted — its live records are copied to
+ * the head of the log with their original sequence numbers, then the file is deleted — when
+ * less than {@code compaction-threshold} of it is live or there are more than
+ * {@code max-segments} segments. Always taking the oldest first keeps clear records correct:
+ * a clear can only refer to records at or before it.
+ *
+ * chat.memory.lookups{result} / chat.memory.sessions — as for the heap store
+ * chat.memory.log.segments / chat.memory.log.bytes / chat.memory.log.compactions
+ */
+@Component
+@ConditionalOnProperty(name = "chat.memory.store", havingValue = "mapped")
+public class MappedLogMemoryStore implements ChatMemory, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedLogMemoryStore.class);
+
+    static final byte CLEAR     = 0;
+    static final byte USER      = 1;
+    static final byte ASSISTANT = 2;
+    static final byte SYSTEM    = 3;
+
+    // Addresses are replaced wholesale on every write, so readers always see a consistent window
+    private static final class Session {
+        private final long[] addresses;
+        private volatile long lastAccess;
+
+        private Session(long[] addresses, long lastAccess) {
+            this.addresses = addresses;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private final int maxMessages;
+    private final long idleTtlMillis;
+    private final double compactionThreshold;
+    private final int maxSegments;
+
+    private final SegmentLog segmentLog;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Cache<String, List<Message>> decoded;
+    private final AtomicLong seq = new AtomicLong();
+    private final ApplicationEventPublisher events;
+    private final ScheduledExecutorService background;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter compactions;
+
+    public MappedLogMemoryStore(
+            MeterRegistry registry,
+            ApplicationEventPublisher events,
+            @Value("${chat.memory.max-messages:20}") int maxMessages,
+            @Value("${chat.memory.idle-ttl:30m}") Duration idleTtl,
+            @Value("${chat.memory.mapped.dir:data/chat-memory}") Path dir,
+            @Value("${chat.memory.mapped.segment-size:64MB}") DataSize segmentSize,
+            @Value("${chat.memory.mapped.hot-sessions:2000}") long hotSessions,
+            @Value("${chat.memory.mapped.compaction-interval:60s}") Duration compactionInterval,
+            @Value("${chat.memory.mapped.compaction-threshold:0.5}") double compactionThreshold,
+            @Value("${chat.memory.mapped.max-segments:8}") int maxSegments,
+            @Value("${chat.memory.mapped.flush-interval:1s}") Duration flushInterval
+    ) throws IOException {
+        this.events              = events;
+        this.maxMessages         = maxMessages;
+        this.idleTtlMillis       = idleTtl.toMillis();
+        this.compactionThreshold = compactionThreshold;
+        this.maxSegments         = Math.max(2, maxSegments);
+        this.decoded             = Caffeine.newBuilder()
+                .maximumSize(hotSessions)
+                .expireAfterAccess(Duration.ofMinutes(5))
+                .build();
+
+        this.segmentLog = new SegmentLog(dir, (int) Math.min(Integer.MAX_VALUE, segmentSize.toBytes()));
+        recover();
+
+        this.hits        = Counter.builder("chat.memory.lookups").tag("result", "hit").register(registry);
+        this.misses      = Counter.builder("chat.memory.lookups").tag("result", "miss").register(registry);
+        this.compactions = Counter.builder("chat.memory.log.compactions").register(registry);
+        Gauge.builder("chat.memory.sessions", sessions, Map::size).register(registry);
+        Gauge.builder("chat.memory.log.segments", segmentLog, SegmentLog::segmentCount).register(registry);
+        Gauge.builder("chat.memory.log.bytes", segmentLog, SegmentLog::writtenBytes)
+                .baseUnit("bytes")
+                .register(registry);
+
+        this.background = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "chat-memory-log");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        background.scheduleWithFixedDelay(this::flush,
+                flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        background.scheduleWithFixedDelay(this::maintain,
+                compactionInterval.toMillis(), compactionInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // ── ChatMemory ───────────────────────────────────────────────────────────────
+    @Override
+    public void add(String sessionId, List<Message> messages) {
+        long now = System.currentTimeMillis();
+        sessions.compute(sessionId, (id, existing) -> {
+            long[] previous = existing != null ? existing.addresses : new long[0];
+            long[] appended = new long[messages.size()];
+            for (int i = 0; i < messages.size(); i++) {
+                Message message = messages.get(i);
+                appended[i] = segmentLog.append(seq.incrementAndGet(), now, kindOf(message), id, message.getText());
+            }
+
+            // Extend the decoded window in place so existing Message instances stay the same
+            List<Message> hot = decoded.getIfPresent(id);
+            if (hot != null) decoded.put(id, window(concat(hot, messages)));
+            return new Session(window(previous, appended), now);
+        });
+    }
+
+    @Override
+    public List<Message> get(String sessionId) {
+        List<Message> hot = decoded.getIfPresent(sessionId);
+        if (hot != null) {
+            hits.increment();
+            Session session = sessions.get(sessionId);
+            if (session != null) session.lastAccess = System.currentTimeMillis();
+            return hot;
+        }
+
+        // A compaction can retire a segment between reading the addresses and decoding them
+        for (int attempt = 0; attempt < 3; attempt++) {
+            Session session = sessions.get(sessionId);
+            if (session == null) {
+                misses.increment();
+                return Collections.emptyList();
+            }
+            session.lastAccess = System.currentTimeMillis();
+
+            List<Message> messages = decode(session.addresses);
+            if (messages == null) continue;
+
+            // Only publish if no write replaced the window meanwhile
+            sessions.computeIfPresent(sessionId, (id, current) -> {
+                if (current == session) decoded.put(id, messages);
+                return current;
+            });
+            hits.increment();
+            return messages;
+        }
+        throw new IllegalStateException("Chat memory for session " + sessionId + " kept moving during compaction");
+    }
+
+    @Override
+    public void clear(String sessionId) {
+        sessions.computeIfPresent(sessionId, (id, existing) -> {
+            segmentLog.append(seq.incrementAndGet(), System.currentTimeMillis(), CLEAR, id, null);
+            decoded.invalidate(id);
+            return null;
+        });
+        events.publishEvent(new SessionClearedEvent(sessionId));
+    }
+
+    // ── Encoding ─────────────────────────────────────────────────────────────────
+    static byte kindOf(Message message) {
+        return switch (message.getMessageType()) {
+            case USER -> USER;
+            case ASSISTANT -> ASSISTANT;
+            case SYSTEM -> SYSTEM;
+            default -> throw new IllegalArgumentException(
+                    "Unsupported message type for the mapped store: " + message.getMessageType());
+        };
+    }
+
+    private List<Message> decode(long[] addresses) {
+        List<Message> messages = new ArrayList<>(addresses.length);
+        for (long address : addresses) {
+            SegmentLog.Record record = segmentLog.read(address);
+            if (record == null) return null;
+            messages.add(switch (record.kind()) {
+                case USER -> new UserMessage(record.text());
+                case SYSTEM -> new SystemMessage(record.text());
+                default -> new AssistantMessage(record.text());
+            });
+        }
+        return List.copyOf(messages);
+    }
+
+    private long[] window(long[] previous, long[] appended) {
+        long[] all = new long[previous.length + appended.length];
+        System.arraycopy(previous, 0, all, 0, previous.length);
+        System.arraycopy(appended, 0, all, previous.length, appended.length);
+        return all.length > maxMessages ? Arrays.copyOfRange(all, all.length - maxMessages, all.length) : all;
+    }
+
+    private List<Message> window(List<Message> messages) {
+        int from = Math.max(0, messages.size() - maxMessages);
+        return List.copyOf(messages.subList(from, messages.size()));
+    }
+
+    private static List<Message> concat(List<Message> a, List<Message> b) {
+        List<Message> all = new ArrayList<>(a.size() + b.size());
+        all.addAll(a);
+        all.addAll(b);
+        return all;
+    }
+
+    // ── Recovery ─────────────────────────────────────────────────────────────────
+    private void recover() {
+        Map<String, List<SegmentLog.Entry>> bySession = new HashMap<>();
+        long[] maxSeq = {0};
+        segmentLog.scan(entry -> {
+            bySession.computeIfAbsent(entry.sessionId(), id -> new ArrayList<>()).add(entry);
+            maxSeq[0] = Math.max(maxSeq[0], entry.seq());
+        });
+        seq.set(maxSeq[0]);
+
+        long cutoff = System.currentTimeMillis() - idleTtlMillis;
+        bySession.forEach((id, entries) -> {
+            // Segments are scanned in file order, but compaction moves old records forward
+            entries.sort(Comparator.comparingLong(SegmentLog.Entry::seq));
+
+            ArrayDeque<Long> window = new ArrayDeque<>(maxMessages);
+            long lastSeq = -1;
+            long lastWrite = 0;
+            for (SegmentLog.Entry entry : entries) {
+                if (entry.seq() == lastSeq) continue; // copied by a compaction that didn't finish
+                lastSeq = entry.seq();
+                lastWrite = Math.max(lastWrite, entry.timestamp());
+
+                if (entry.kind() == CLEAR) {
+                    window.clear();
+                } else {
+                    window.addLast(entry.address());
+                    if (window.size() > maxMessages) window.removeFirst();
+                }
+            }
+            if (!window.isEmpty() && lastWrite >= cutoff) {
+                sessions.put(id, new Session(window.stream().mapToLong(Long::longValue).toArray(), lastWrite));
+            }
+        });
+
+        log.atInfo()
+                .addKeyValue("sessions", sessions.size())
+                .addKeyValue("segments", segmentLog.segmentCount())
+                .addKeyValue("bytes", segmentLog.writtenBytes())
+                .log("Chat memory recovered from log");
+    }
+
+    // ── Background Maintenance ───────────────────────────────────────────────────
+    private void flush() {
+        try {
+            segmentLog.force();
+        } catch (RuntimeException e) {
+            log.atWarn().setCause(e).log("Chat memory log flush failed");
+        }
+    }
+
+    void maintain() {
+        try {
+            expireIdle();
+            compact();
+        } catch (IOException | RuntimeException e) {
+            log.atWarn().setCause(e).log("Chat memory log compaction failed");
+        }
+    }
+
+    // Logged as a clear, so an expired session doesn't come back after a restart
+    private void expireIdle() {
+        long cutoff = System.currentTimeMillis() - idleTtlMillis;
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            if (entry.getValue().lastAccess >= cutoff) continue;
+            Session expired = sessions.computeIfPresent(entry.getKey(), (id, session) -> {
+                if (session.lastAccess >= cutoff) return session;
+                segmentLog.append(seq.incrementAndGet(), System.currentTimeMillis(), CLEAR, id, null);
+                decoded.invalidate(id);
+                return null;
+            });
+            if (expired == null) events.publishEvent(new SessionClearedEvent(entry.getKey()));
+        }
+    }
+
+    private void compact() throws IOException {
+        List<Integer> sealed = segmentLog.sealedSegments();
+        while (!sealed.isEmpty()) {
+            int oldest = sealed.get(0);
+            long live = liveBytes(oldest);
+            boolean mostlyDead = live < compactionThreshold * segmentLog.segmentCapacity(oldest);
+            if (!mostlyDead && segmentLog.segmentCount() <= maxSegments) return;
+
+            relocate(oldest);
+            segmentLog.delete(oldest);
+            compactions.increment();
+            log.atInfo().addKeyValue("segment", oldest).addKeyValue("liveBytes", live)
+                    .log("Chat memory segment compacted");
+            sealed = segmentLog.sealedSegments();
+        }
+    }
+
+    private long liveBytes(int segmentId) {
+        long live = 0;
+        for (Session session : sessions.values()) {
+            for (long address : session.addresses) {
+                if (SegmentLog.segmentOf(address) == segmentId) live += segmentLog.length(address);
+            }
+        }
+        return live;
+    }
+
+    // Copies a segment's live records to the head of the log and repoints their sessions
+    private void relocate(int segmentId) {
+        for (String sessionId : sessions.keySet()) {
+            sessions.computeIfPresent(sessionId, (id, session) -> {
+                long[] moved = null;
+                for (int i = 0; i < session.addresses.length; i++) {
+                    long address = session.addresses[i];
+                    if (SegmentLog.segmentOf(address) != segmentId) continue;
+                    if (moved == null) moved = session.addresses.clone();
+                    moved[i] = segmentLog.appendRaw(segmentLog.raw(address));
+                }
+                return moved == null ? session : new Session(moved, session.lastAccess);
+            });
+        }
+    }
+
+    @Override
+    public void close() {
+        background.shutdownNow();
+        try {
+            segmentLog.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.ai.memory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of session history records in fixed-size, memory-mapped segment files.
+ *
+ * Record layout (big-endian):
+ *
+ *   int length | int crc32 | long seq | long timestamp | byte kind | short idLength | id | text
+ *
+ * length covers the whole record and is written last, so a zero length marks the end of the
+ * written part of a segment; crc32 covers everything after the crc field. Scanning stops at
+ * the first zero length or bad checksum. A record is addressed by (segment id &lt;&lt; 32 | offset).
+ *
+ * Appends are serialized; reads are lock-free absolute gets on the shared mapping.
+ */
+final class SegmentLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentLog.class);
+
+    static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 1 + 2;
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d{8})\\.log");
+
+    /** Decoded record. */
+    record Record(long seq, long timestamp, byte kind, String sessionId, String text) {
+    }
+
+    /** Where a record lives, as found by {@link #scan}. */
+    record Entry(long address, long seq, long timestamp, byte kind, String sessionId) {
+    }
+
+    private static final class Segment {
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int written;
+
+        private Segment(int id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    private final Path dir;
+    private final int segmentSize;
+    private final Map<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private Segment active;
+    private int writeOffset;
+    private volatile long writtenBytes;
+
+    SegmentLog(Path dir, int segmentSize) throws IOException {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(dir);
+
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path path : files.toList()) {
+                Matcher m = SEGMENT_NAME.matcher(path.getFileName().toString());
+                if (m.matches()) {
+                    int id = Integer.parseInt(m.group(1));
+                    segments.put(id, map(id, path, Math.max(segmentSize, (int) Files.size(path))));
+                }
+            }
+        }
+    }
+
+    // ── Recovery ─────────────────────────────────────────────────────────────────
+    /**
+     * Visits every intact record, oldest segment first, and positions the writer after the
+     * last intact record of the newest segment. Call once, before the first append.
+     */
+    void scan(Consumer<Entry> visitor) {
+        long written = 0;
+        for (Segment segment : segments.values()) {
+            MappedByteBuffer buf = segment.buffer;
+            int offset = 0;
+            boolean torn = false;
+
+            while (offset + HEADER_BYTES <= buf.capacity()) {
+                int length = buf.getInt(offset);
+                if (length == 0) break;
+                if (length < HEADER_BYTES || offset + length > buf.capacity()
+                        || buf.getInt(offset + 4) != crc(buf, offset, length)) {
+                    torn = true;
+                    break;
+                }
+                byte[] id = new byte[buf.getShort(offset + 25)];
+                buf.get(offset + HEADER_BYTES, id);
+                visitor.accept(new Entry(address(segment.id, offset), buf.getLong(offset + 8),
+                        buf.getLong(offset + 16), buf.get(offset + 24), new String(id, StandardCharsets.UTF_8)));
+                offset += length;
+            }
+
+            if (torn) {
+                log.atWarn().addKeyValue("segment", segment.path).addKeyValue("offset", offset)
+                        .log("Chat memory log: damaged record, ignoring the rest of the segment");
+                // Zero the tail so records appended after this point are the only ones a later scan sees
+                if (segment == lastSegment()) {
+                    for (int i = offset; i < buf.capacity(); i++) buf.put(i, (byte) 0);
+                }
+            }
+            written += offset;
+            segment.written = offset;
+            active = segment;
+            writeOffset = offset;
+        }
+        writtenBytes = written;
+    }
+
+    private Segment lastSegment() {
+        Segment last = null;
+        for (Segment segment : segments.values()) last = segment;
+        return last;
+    }
+
+    // ── Append / Read ────────────────────────────────────────────────────────────
+    synchronized long append(long seq, long timestamp, byte kind, String sessionId, String text) {
+        byte[] id = sessionId.getBytes(StandardCharsets.UTF_8);
+        byte[] body = text != null ? text.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int length = HEADER_BYTES + id.length + body.length;
+        if (id.length > Short.MAX_VALUE) throw new IllegalArgumentException("Session id too long");
+
+        int offset = reserve(length);
+        MappedByteBuffer buf = active.buffer;
+        buf.putLong(offset + 8, seq);
+        buf.putLong(offset + 16, timestamp);
+        buf.put(offset + 24, kind);
+        buf.putShort(offset + 25, (short) id.length);
+        buf.put(offset + HEADER_BYTES, id);
+        buf.put(offset + HEADER_BYTES + id.length, body);
+        return commit(offset, length);
+    }
+
+    /** Appends a record copied verbatim from {@link #raw} (compaction keeps seq and timestamp). */
+    synchronized long appendRaw(byte[] record) {
+        int offset = reserve(record.length);
+        active.buffer.put(offset + 4, record, 4, record.length - 4);
+        return commit(offset, record.length);
+    }
+
+    private int reserve(int length) {
+        if (length > segmentSize) {
+            throw new IllegalArgumentException("Record of " + length + " bytes exceeds the segment size");
+        }
+        if (active == null || writeOffset + length > active.buffer.capacity()) roll();
+        return writeOffset;
+    }
+
+    // crc, then length: a record is visible to a scan only once it is complete
+    private long commit(int offset, int length) {
+        MappedByteBuffer buf = active.buffer;
+        buf.putInt(offset + 4, crc(buf, offset, length));
+        buf.putInt(offset, length);
+        writeOffset += length;
+        active.written += length;
+        writtenBytes += length;
+        return address(active.id, offset);
+    }
+
+    private void roll() {
+        int id = active == null ? 1 : active.id + 1;
+        try {
+            Segment segment = map(id, dir.resolve(String.format("segment-%08d.log", id)), segmentSize);
+            segments.put(id, segment);
+            active = segment;
+            writeOffset = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create chat memory segment " + id, e);
+        }
+    }
+
+    /** The record at an address, or null if its segment has been compacted away. */
+    Record read(long address) {
+        Segment segment = segments.get(segmentOf(address));
+        if (segment == null) return null;
+
+        MappedByteBuffer buf = segment.buffer;
+        int offset = offsetOf(address);
+        int length = buf.getInt(offset);
+        int idLength = buf.getShort(offset + 25);
+
+        byte[] id = new byte[idLength];
+        byte[] text = new byte[length - HEADER_BYTES - idLength];
+        buf.get(offset + HEADER_BYTES, id);
+        buf.get(offset + HEADER_BYTES + idLength, text);
+        return new Record(buf.getLong(offset + 8), buf.getLong(offset + 16), buf.get(offset + 24),
+                new String(id, StandardCharsets.UTF_8), new String(text, StandardCharsets.UTF_8));
+    }
+
+    /** Raw bytes of the record at an address, or null if its segment is gone. */
+    byte[] raw(long address) {
+        Segment segment = segments.get(segmentOf(address));
+        if (segment == null) return null;
+        int offset = offsetOf(address);
+        byte[] record = new byte[segment.buffer.getInt(offset)];
+        segment.buffer.get(offset, record);
+        return record;
+    }
+
+    int length(long address) {
+        Segment segment = segments.get(segmentOf(address));
+        return segment != null ? segment.buffer.getInt(offsetOf(address)) : 0;
+    }
+
+    // ── Segments ─────────────────────────────────────────────────────────────────
+    /** Segment ids that no longer receive appends, oldest first. */
+    synchronized List<Integer> sealedSegments() {
+        List<Integer> sealed = new ArrayList<>();
+        for (int id : segments.keySet()) {
+            if (active == null || id != active.id) sealed.add(id);
+        }
+        return sealed;
+    }
+
+    int segmentCapacity(int id) {
+        Segment segment = segments.get(id);
+        return segment != null ? segment.buffer.capacity() : 0;
+    }
+
+    /**
+     * Drops a sealed segment. The mapping is left to the GC rather than unmapped, so a reader
+     * that raced with compaction never touches unmapped memory.
+     */
+    synchronized void delete(int id) throws IOException {
+        Segment segment = segments.remove(id);
+        if (segment == null) return;
+        writtenBytes -= segment.written;
+        segment.channel.close();
+        Files.deleteIfExists(segment.path);
+    }
+
+    synchronized void force() {
+        if (active != null) active.buffer.force();
+    }
+
+    int segmentCount() {
+        return segments.size();
+    }
+
+    /** Bytes of intact records in the live segments. */
+    long writtenBytes() {
+        return writtenBytes;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        for (Segment segment : segments.values()) segment.channel.close();
+    }
+
+    // ── Helpers ──────────────────────────────────────────────────────────────────
+    private static Segment map(int id, Path path, int size) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+
+    private static int crc(MappedByteBuffer buf, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buf.slice(offset + 8, length - 8));
+        return (int) crc.getValue();
+    }
+
+    static long address(int segmentId, int offset) {
+        return ((long) segmentId << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    static int segmentOf(long address) {
+        return (int) (address >>> 32);
+    }
+
+    static int offsetOf(long address) {
+        return (int) address;
+    }
+}
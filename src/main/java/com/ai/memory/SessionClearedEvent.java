@@ -0,0 +1,8 @@
+package com.ai.memory;
+
+/**
+ * Published by the chat memory stores when a session's history is cleared or expires, so
+ * state derived from that history (e.g. the rolling summary in {@link ContextManager}) goes too.
+ */
+public record SessionClearedEvent(String sessionId) {
+}
@@ -0,0 +1,114 @@
+package com.ai.memory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bounded, concurrent per-session chat history.
+ *
+ * Backed by a Caffeine cache (W-TinyLFU eviction, lock-free reads, per-key atomic updates).
+ * Sessions expire after an idle TTL, and total history is capped by an approximate byte
+ * weight so chat history can never grow the heap without bound. History does not survive a
+ * restart; see {@link MappedLogMemoryStore} for that.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.memory.store", havingValue = "heap", matchIfMissing = true)
+public class SessionMemoryStore implements ChatMemory {
+
+    // Rough per-message overhead: Message object, metadata map, list slot
+    private static final int MESSAGE_OVERHEAD_BYTES = 96;
+    private static final int SESSION_OVERHEAD_BYTES = 128;
+
+    private final int maxMessages;
+    private final Cache<String, List<Message>> sessions;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final MeterRegistry registry;
+    private final ApplicationEventPublisher events;
+
+    public SessionMemoryStore(
+            MeterRegistry registry,
+            ApplicationEventPublisher events,
+            @Value("${chat.memory.max-messages:20}") int maxMessages,
+            @Value("${chat.memory.idle-ttl:30m}") Duration idleTtl,
+            @Value("${chat.memory.max-bytes:67108864}") long maxBytes
+    ) {
+        this.registry = registry;
+        this.events = events;
+        this.maxMessages = maxMessages;
+
+        this.sessions = Caffeine.newBuilder()
+                .expireAfterAccess(idleTtl)
+                .maximumWeight(maxBytes)
+                .weigher((String id, List<Message> history) -> weigh(id, history))
+                .evictionListener((String id, List<Message> history, RemovalCause cause) -> {
+                    registry.counter("chat.memory.evictions", "cause", cause.name().toLowerCase()).increment();
+                    events.publishEvent(new SessionClearedEvent(id));
+                })
+                .scheduler(Scheduler.systemScheduler())
+                .build();
+
+        this.hits   = Counter.builder("chat.memory.lookups").tag("result", "hit").register(registry);
+        this.misses = Counter.builder("chat.memory.lookups").tag("result", "miss").register(registry);
+
+        Gauge.builder("chat.memory.sessions", sessions, Cache::estimatedSize).register(registry);
+        Gauge.builder("chat.memory.bytes", sessions,
+                        c -> c.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L))
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    // ── ChatMemory ───────────────────────────────────────────────────────────────
+    @Override
+    public void add(String sessionId, List<Message> messages) {
+        // compute() is atomic per key and re-weighs the entry after each append
+        sessions.asMap().compute(sessionId, (id, existing) -> {
+            List<Message> updated = new ArrayList<>(existing == null ? List.of() : existing);
+            updated.addAll(messages);
+            if (updated.size() > maxMessages) {
+                updated = updated.subList(updated.size() - maxMessages, updated.size());
+            }
+            return List.copyOf(updated);
+        });
+    }
+
+    @Override
+    public List<Message> get(String sessionId) {
+        List<Message> history = sessions.getIfPresent(sessionId);
+        (history != null ? hits : misses).increment();
+        return history != null ? history : Collections.emptyList();
+    }
+
+    @Override
+    public void clear(String sessionId) {
+        sessions.invalidate(sessionId);
+        events.publishEvent(new SessionClearedEvent(sessionId));
+    }
+
+    // ── Size Accounting ──────────────────────────────────────────────────────────
+    static int weigh(String sessionId, List<Message> history) {
+        long bytes = SESSION_OVERHEAD_BYTES + 2L * sessionId.length();
+        for (Message msg : history) {
+            String text = msg.getText();
+            bytes += MESSAGE_OVERHEAD_BYTES + (text != null ? 2L * text.length() : 0);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+}
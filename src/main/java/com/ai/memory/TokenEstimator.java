@@ -0,0 +1,30 @@
+package com.ai.memory;
+
+/**
+ * Cheap local token estimate for chat messages — no tokenizer, no allocation.
+ *
+ * English prose averages ~4 characters per token for GPT-style BPE vocabularies; JSON and
+ * code tokenize denser because of quotes, braces and short keys, so those characters are
+ * counted as a token each. Every message also carries a fixed framing overhead
+ * (role, separators). Good to within ~15% — enough to enforce a budget.
+ */
+public final class TokenEstimator {
+
+    static final int MESSAGE_OVERHEAD_TOKENS = 4;
+
+    private TokenEstimator() {
+    }
+
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) return MESSAGE_OVERHEAD_TOKENS;
+
+        int letters = 0;
+        int symbols = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c == '{' || c == '}' || c == '[' || c == ']' || c == '"' || c == ':' || c == ',') symbols++;
+            else letters++;
+        }
+        return MESSAGE_OVERHEAD_TOKENS + symbols + (letters + 3) / 4;
+    }
+}
@@ -0,0 +1,30 @@
+package com.ai.model;
+
+import java.util.List;
+
+/**
+ * Typed chat-completions request. The system prompt is selected by {@code systemPromptType}
+ * and written from pre-encoded bytes; {@code messages} holds everything after it.
+ *
+ * {@code maxTokens} is only sent when set, and {@code searchTools=false} offers just the
+ * date/time tool — both are how a degraded general-mode request sheds work.
+ */
+public record ChatCompletionRequest(
+        String model,
+        String systemPromptType,
+        List<ChatMessage> messages,
+        boolean withTools,
+        boolean stream,
+        Integer maxTokens,
+        boolean searchTools
+) {
+
+    public ChatCompletionRequest(String model, String systemPromptType, List<ChatMessage> messages,
+                                 boolean withTools, boolean stream) {
+        this(model, systemPromptType, messages, withTools, stream, null, true);
+    }
+
+    public ChatCompletionRequest withModel(String model) {
+        return new ChatCompletionRequest(model, systemPromptType, messages, withTools, stream, maxTokens, searchTools);
+    }
+}
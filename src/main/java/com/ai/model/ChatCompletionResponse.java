@@ -0,0 +1,34 @@
+package com.ai.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Chat-completions response body, and also the shape of each streamed chunk
+ * (where choices carry {@code delta} instead of {@code message}).
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ChatCompletionResponse(String model, List<Choice> choices, Usage usage) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Choice(
+            ChatMessage message,
+            ChatMessage delta,
+            @JsonProperty("finish_reason") String finishReason
+    ) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Usage(
+            @JsonProperty("prompt_tokens") int promptTokens,
+            @JsonProperty("completion_tokens") int completionTokens,
+            @JsonProperty("total_tokens") int totalTokens
+    ) {
+    }
+
+    public Choice firstChoice() {
+        return choices != null && !choices.isEmpty() ? choices.get(0) : null;
+    }
+}
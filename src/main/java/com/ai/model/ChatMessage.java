@@ -0,0 +1,37 @@
+package com.ai.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * One chat-completions message — request history entries, response {@code message}
+ * and streamed {@code delta} all share this shape.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ChatMessage(
+        String role,
+        String content,
+        @JsonProperty("tool_calls") List<ToolCall> toolCalls,
+        @JsonProperty("tool_call_id") String toolCallId
+) {
+
+    public static ChatMessage of(String role, String content) {
+        return new ChatMessage(role, content, null, null);
+    }
+
+    public static ChatMessage assistantToolCalls(String content, List<ToolCall> toolCalls) {
+        return new ChatMessage("assistant", content != null ? content : "", toolCalls, null);
+    }
+
+    public static ChatMessage toolResult(String toolCallId, String content) {
+        return new ChatMessage("tool", content, null, toolCallId);
+    }
+
+    public boolean hasToolCalls() {
+        return toolCalls != null && !toolCalls.isEmpty();
+    }
+}
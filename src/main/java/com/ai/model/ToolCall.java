@@ -0,0 +1,25 @@
+package com.ai.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A tool call requested by the model. {@code index} is only present on streamed fragments.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ToolCall(Integer index, String id, String type, FunctionCall function) {
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record FunctionCall(String name, String arguments) {
+    }
+
+    public String name() {
+        return function != null ? function.name() : null;
+    }
+
+    public String arguments() {
+        return function != null ? function.arguments() : null;
+    }
+}
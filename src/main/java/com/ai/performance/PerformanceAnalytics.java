@@ -0,0 +1,94 @@
+package com.ai.performance;
+
+import java.util.Locale;
+
+/**
+ * Deterministic quiz analytics — everything about a result that doesn't need a model.
+ *
+ * Accuracy is correct/total. Pace compares time per question with what the difficulty
+ * warrants (easy 20s, medium 30s, hard 45s): under 0.6x is "fast", over 1.2x is "slow".
+ * The adjusted score weights accuracy by difficulty (easy 0.85, medium 1.0, hard 1.2),
+ * capped at 100, and maps to the same rating bands the performance prompt uses.
+ */
+public final class PerformanceAnalytics {
+
+    private PerformanceAnalytics() {
+    }
+
+    public record Report(
+            String topic,
+            String difficulty,
+            int correct,
+            int total,
+            double secondsPerQuestion,
+            double accuracy,
+            double paceRatio,
+            String pace,
+            int adjustedScore,
+            String rating
+    ) {
+    }
+
+    public static Report analyze(String topic, String difficulty, int correct, int total, double secondsPerQuestion) {
+        String level = normalizeDifficulty(difficulty);
+        int questions = Math.max(1, total);
+        int right = Math.max(0, Math.min(correct, questions));
+        double seconds = Math.max(0, secondsPerQuestion);
+
+        double accuracy = (double) right / questions;
+        double paceRatio = seconds / expectedSeconds(level);
+        int adjusted = (int) Math.round(Math.min(100, accuracy * 100 * difficultyWeight(level)));
+
+        return new Report(normalizeTopic(topic), level, right, questions, seconds,
+                accuracy, paceRatio, pace(paceRatio), adjusted, rating(adjusted));
+    }
+
+    // ── Buckets ──────────────────────────────────────────────────────────────────
+    /** Index of the accuracy band, 0..buckets-1; 100% shares the top band. */
+    public static int accuracyBucket(double accuracy, int buckets) {
+        return Math.min(buckets - 1, (int) Math.floor(accuracy * buckets));
+    }
+
+    static String pace(double paceRatio) {
+        if (paceRatio < 0.6) return "fast";
+        if (paceRatio > 1.2) return "slow";
+        return "steady";
+    }
+
+    static String rating(int adjustedScore) {
+        if (adjustedScore >= 85) return "Excellent";
+        if (adjustedScore >= 70) return "Good";
+        if (adjustedScore >= 50) return "Needs Work";
+        return "Keep Practicing";
+    }
+
+    // ── Difficulty ───────────────────────────────────────────────────────────────
+    static String normalizeDifficulty(String difficulty) {
+        String level = difficulty == null ? "" : difficulty.trim().toLowerCase(Locale.ROOT);
+        return switch (level) {
+            case "easy", "hard" -> level;
+            default -> "medium";
+        };
+    }
+
+    private static double expectedSeconds(String level) {
+        return switch (level) {
+            case "easy" -> 20;
+            case "hard" -> 45;
+            default -> 30;
+        };
+    }
+
+    private static double difficultyWeight(String level) {
+        return switch (level) {
+            case "easy" -> 0.85;
+            case "hard" -> 1.2;
+            default -> 1.0;
+        };
+    }
+
+    static String normalizeTopic(String topic) {
+        if (topic == null || topic.isBlank()) return "unknown";
+        return topic.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
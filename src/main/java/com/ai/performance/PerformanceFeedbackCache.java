@@ -0,0 +1,154 @@
+package com.ai.performance;
+
+import com.ai.service.OpenRouterService;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Model-written quiz feedback, shared by every result that lands in the same bucket.
+ *
+ * A bucket is (topic, accuracy band, difficulty, pace, rating). The model is asked about the
+ * bucket, not the exact result, so its text holds for everyone in it; the exact numbers come
+ * from {@link PerformanceAnalytics}. The rating is computed locally (difficulty-weighted) and
+ * given to the model, which is told not to rate the result itself — an accuracy band can span
+ * two ratings, so the rating is part of the key. Only the first result in a bucket waits for the model —
+ * concurrent misses on one bucket share a single call. Entries older than
+ * {@code performance.feedback.refresh-after} are served as-is while a fresh copy is generated
+ * on the low-priority summary executor, and buckets nobody hits are dropped after
+ * {@code performance.feedback.expire-after}. The streaming endpoint uses {@link #cached} and
+ * {@link #stream}: a hit is sent whole, a miss streams the same bucket prompt and is cached.
+ *
+ * performance.feedback.requests{result=hit|miss|bypass} / performance.feedback.loads{kind=load|refresh|stream}
+ */
+@Component
+public class PerformanceFeedbackCache {
+
+    /** Cache key; topic and difficulty are normalized by {@link PerformanceAnalytics}. */
+    record Bucket(String topic, int accuracyBand, String difficulty, String pace, String rating) {
+    }
+
+    private final OpenRouterService service;
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final int accuracyBands;
+    private final LoadingCache<Bucket, String> feedback;
+
+    public PerformanceFeedbackCache(
+            OpenRouterService service,
+            @Qualifier("summaryExecutor") AsyncTaskExecutor refreshExecutor,
+            MeterRegistry registry,
+            @Value("${performance.feedback.cache.enabled:true}") boolean enabled,
+            @Value("${performance.feedback.accuracy-bands:5}") int accuracyBands,
+            @Value("${performance.feedback.refresh-after:6h}") Duration refreshAfter,
+            @Value("${performance.feedback.expire-after:7d}") Duration expireAfter,
+            @Value("${performance.feedback.max-entries:20000}") long maxEntries
+    ) {
+        this.service       = service;
+        this.registry      = registry;
+        this.enabled       = enabled;
+        this.accuracyBands = Math.max(1, accuracyBands);
+
+        this.feedback = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterAccess(expireAfter)
+                .refreshAfterWrite(refreshAfter)
+                .executor(refreshExecutor)
+                .build(new CacheLoader<>() {
+                    @Override
+                    public String load(Bucket bucket) {
+                        return generate(bucket, "load");
+                    }
+
+                    @Override
+                    public String reload(Bucket bucket, String previous) {
+                        return generate(bucket, "refresh");
+                    }
+                });
+
+        Gauge.builder("performance.feedback.size", feedback, c -> c.estimatedSize()).register(registry);
+    }
+
+    public String feedback(PerformanceAnalytics.Report report) {
+        Bucket bucket = bucketOf(report, accuracyBands);
+        if (!enabled) {
+            record("bypass");
+            return generate(bucket, "load");
+        }
+
+        String cached = feedback.getIfPresent(bucket);
+        if (cached != null) {
+            record("hit");
+            return cached;
+        }
+        record("miss");
+        return feedback.get(bucket);
+    }
+
+    /** Cached feedback for the report's bucket, or null if it has to be generated. */
+    public String cached(PerformanceAnalytics.Report report) {
+        if (!enabled) return null;
+        String cached = feedback.getIfPresent(bucketOf(report, accuracyBands));
+        if (cached != null) record("hit");
+        return cached;
+    }
+
+    /**
+     * Generates a bucket's feedback while relaying it to onDelta, then caches it. Misses on the
+     * streaming path don't wait on each other's load; the last one to finish is kept.
+     */
+    public String stream(String sessionId, PerformanceAnalytics.Report report, Consumer<String> onDelta) {
+        Bucket bucket = bucketOf(report, accuracyBands);
+        record(enabled ? "miss" : "bypass");
+        registry.counter("performance.feedback.loads", "kind", "stream").increment();
+
+        String text = service.streamStateless(sessionId, buildBucketPrompt(bucket, accuracyBands), "performance", onDelta);
+        if (enabled && !text.isBlank()) feedback.put(bucket, text);
+        return text;
+    }
+
+    static Bucket bucketOf(PerformanceAnalytics.Report report, int accuracyBands) {
+        return new Bucket(report.topic(),
+                PerformanceAnalytics.accuracyBucket(report.accuracy(), accuracyBands),
+                report.difficulty(), report.pace(), report.rating());
+    }
+
+    // ── Generation ───────────────────────────────────────────────────────────────
+    private String generate(Bucket bucket, String kind) {
+        registry.counter("performance.feedback.loads", "kind", kind).increment();
+        return service.callStateless(null, buildBucketPrompt(bucket, accuracyBands), "performance");
+    }
+
+    static String buildBucketPrompt(Bucket bucket, int accuracyBands) {
+        int low  = bucket.accuracyBand() * 100 / accuracyBands;
+        int high = (bucket.accuracyBand() + 1) * 100 / accuracyBands;
+        String accuracy = high >= 100 ? low + "–100%" : low + "–" + (high - 1) + "%";
+
+        return String.format(
+                "Quiz Performance Report:\n" +
+                        "- Topic: %s\n" +
+                        "- Accuracy: %s of questions correct\n" +
+                        "- Difficulty Level: %s\n" +
+                        "- Pace: %s for this difficulty\n" +
+                        "- Rating: %s (already computed from accuracy weighted by difficulty)\n\n" +
+                        "This review is shown to every learner whose result falls in this band, so speak to " +
+                        "the band rather than an exact score. Use the rating above as given; do not compute " +
+                        "a score or rating of your own. " +
+                        "Please give a detailed performance review and study recommendations.",
+                bucket.topic(), accuracy, bucket.difficulty(), bucket.pace(), bucket.rating()
+        );
+    }
+
+    private void record(String result) {
+        registry.counter("performance.feedback.requests", "result", result).increment();
+    }
+}
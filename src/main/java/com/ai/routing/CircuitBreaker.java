@@ -0,0 +1,123 @@
+package com.ai.routing;
+
+/**
+ * Count-based circuit breaker for one upstream model.
+ *
+ * Tracks the last {@code windowSize} calls; once at least {@code minCalls} are recorded and
+ * the share of failures (errors or calls slower than {@code slowCallNanos}) reaches
+ * {@code failureRate}, the breaker opens for {@code openNanos}. After that a single trial
+ * call is let through (half-open): success closes the breaker, failure re-opens it.
+ */
+final class CircuitBreaker {
+
+    // Ordinal is the router.breaker.state gauge value
+    enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final int windowSize;
+    private final int minCalls;
+    private final double failureRate;
+    private final long slowCallNanos;
+    private final long openNanos;
+
+    private final boolean[] failed;
+    private int recorded;
+    private int next;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    CircuitBreaker(int windowSize, int minCalls, double failureRate, long slowCallNanos, long openNanos) {
+        this.windowSize    = windowSize;
+        this.minCalls      = minCalls;
+        this.failureRate   = failureRate;
+        this.slowCallNanos = slowCallNanos;
+        this.openNanos     = openNanos;
+        this.failed        = new boolean[windowSize];
+    }
+
+    // Would a call be let through right now? (does not claim the half-open trial)
+    synchronized boolean isCallPermitted(long now) {
+        return switch (state) {
+            case CLOSED    -> true;
+            case OPEN      -> now - openedAt >= openNanos;
+            case HALF_OPEN -> !trialInFlight;
+        };
+    }
+
+    // Claims permission for a call that is about to be sent
+    synchronized boolean tryAcquire(long now) {
+        if (state == State.OPEN && now - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        return switch (state) {
+            case CLOSED    -> true;
+            case OPEN      -> false;
+            case HALF_OPEN -> {
+                if (trialInFlight) yield false;
+                trialInFlight = true;
+                yield true;
+            }
+        };
+    }
+
+    synchronized void onSuccess(long latencyNanos, long now) {
+        if (latencyNanos >= slowCallNanos) {
+            onFailure(now);
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            reset();
+            return;
+        }
+        record(false, now);
+    }
+
+    synchronized void onFailure(long now) {
+        if (state == State.HALF_OPEN) {
+            open(now);
+            return;
+        }
+        record(true, now);
+    }
+
+    // The call ended without telling us anything about the model (cancelled, local overload)
+    synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) trialInFlight = false;
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    private void record(boolean failure, long now) {
+        if (recorded == windowSize) {
+            if (failed[next]) failures--;
+        } else {
+            recorded++;
+        }
+        failed[next] = failure;
+        if (failure) failures++;
+        next = (next + 1) % windowSize;
+
+        if (state == State.CLOSED && recorded >= minCalls && failures >= failureRate * recorded) {
+            open(now);
+        }
+    }
+
+    private void open(long now) {
+        state = State.OPEN;
+        openedAt = now;
+        trialInFlight = false;
+    }
+
+    private void reset() {
+        state = State.CLOSED;
+        trialInFlight = false;
+        recorded = 0;
+        next = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,45 @@
+package com.ai.routing;
+
+import java.util.Arrays;
+
+/**
+ * Rolling latency percentile over the last {@code size} successful calls of one model.
+ * The percentile is re-sorted at most every {@code RECOMPUTE_EVERY} samples — reads on the
+ * request path only take a lock and return a cached value.
+ */
+final class LatencyWindow {
+
+    private static final int RECOMPUTE_EVERY = 16;
+
+    private final long[] samples;
+    private int count;
+    private int next;
+    private int sinceRecompute;
+    private long p95;
+
+    LatencyWindow(int size) {
+        this.samples = new long[size];
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) count++;
+        if (++sinceRecompute >= RECOMPUTE_EVERY) recompute();
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    synchronized long p95() {
+        return p95;
+    }
+
+    private void recompute() {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        p95 = sorted[Math.min(count - 1, (int) Math.ceil(0.95 * count) - 1)];
+        sinceRecompute = 0;
+    }
+}
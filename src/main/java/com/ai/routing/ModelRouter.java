@@ -0,0 +1,379 @@
+package com.ai.routing;
+
+import com.ai.config.SystemPrompts;
+import com.ai.service.UpstreamCallPolicy;
+import com.ai.service.UpstreamLimiter;
+import com.ai.service.UpstreamOverloadedException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Picks the upstream model for each call and keeps slow or failing models off the hot path.
+ *
+ * Every mode has an ordered model list ({@code router.models.<mode>}, first is primary).
+ * A non-streaming call is sent to the first model whose circuit breaker admits it. If it has
+ * not answered within that model's rolling p95 latency, a hedge goes to the next model and
+ * whichever answers first wins — the other is cancelled. A call that fails outright fails
+ * over to the next model. Hedges are capped at {@code router.hedge.max-ratio} of calls so a
+ * slow upstream can't double the load on itself, are only sent while the upstream limiter has a
+ * free slot and nothing queued, and — like failovers — draw on the retry budget of
+ * {@link UpstreamCallPolicy}, so router attempts don't multiply the policy's own retries.
+ *
+ * Latency (for the hedge delay, slow-call breaking and router.latency) is the upstream exchange
+ * the call reports through {@link Exchange}, not the wait for a limiter slot or retry backoff.
+ *
+ * Streams can't be hedged once tokens have been relayed, so they only get breaker-aware
+ * model selection.
+ *
+ * router.calls{model,outcome=success|failure|ignored} / router.latency{model}
+ * router.hedges{result=fired|won|skipped} / router.breaker.state{model} (0 closed, 1 half-open, 2 open)
+ */
+@Component
+public class ModelRouter {
+
+    private final Environment environment;
+    private final AsyncTaskExecutor executor;
+    private final MeterRegistry registry;
+    private final UpstreamCallPolicy policy;
+    private final UpstreamLimiter limiter;
+
+    private final List<String> defaultModels;
+    private final boolean hedgeEnabled;
+    private final Duration initialHedgeDelay;
+    private final Duration minHedgeDelay;
+    private final double maxHedgeRatio;
+
+    private final int breakerWindow;
+    private final int breakerMinCalls;
+    private final double breakerFailureRate;
+    private final Duration slowCall;
+    private final Duration openDuration;
+
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> modelsByMode = new ConcurrentHashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+
+    public ModelRouter(
+            Environment environment,
+            @Qualifier("routerExecutor") AsyncTaskExecutor executor,
+            MeterRegistry registry,
+            UpstreamCallPolicy policy,
+            UpstreamLimiter limiter,
+            @Value("${router.models.default:openai/gpt-3.5-turbo}") String defaultModels,
+            @Value("${router.hedge.enabled:true}") boolean hedgeEnabled,
+            @Value("${router.hedge.initial-delay:5s}") Duration initialHedgeDelay,
+            @Value("${router.hedge.min-delay:500ms}") Duration minHedgeDelay,
+            @Value("${router.hedge.max-ratio:0.1}") double maxHedgeRatio,
+            @Value("${router.breaker.window:20}") int breakerWindow,
+            @Value("${router.breaker.min-calls:10}") int breakerMinCalls,
+            @Value("${router.breaker.failure-rate:0.5}") double breakerFailureRate,
+            @Value("${router.breaker.slow-call:30s}") Duration slowCall,
+            @Value("${router.breaker.open-duration:30s}") Duration openDuration
+    ) {
+        this.environment        = environment;
+        this.executor           = executor;
+        this.registry           = registry;
+        this.policy             = policy;
+        this.limiter            = limiter;
+        this.defaultModels      = parseModels(defaultModels);
+        this.hedgeEnabled       = hedgeEnabled;
+        this.initialHedgeDelay  = initialHedgeDelay;
+        this.minHedgeDelay      = minHedgeDelay;
+        this.maxHedgeRatio      = maxHedgeRatio;
+        this.breakerWindow      = breakerWindow;
+        this.breakerMinCalls    = breakerMinCalls;
+        this.breakerFailureRate = breakerFailureRate;
+        this.slowCall           = slowCall;
+        this.openDuration       = openDuration;
+    }
+
+    /** Primary model for a mode — what a request is built with before routing. */
+    public String primary(String systemPromptType) {
+        return models(systemPromptType).get(0);
+    }
+
+    // ── Calls ────────────────────────────────────────────────────────────────────
+    /** One attempt against {@code model}; the upstream exchange itself is timed through {@code exchange}. */
+    @FunctionalInterface
+    public interface Call<T> {
+        T apply(String model, Exchange exchange);
+    }
+
+    /** Times the part of an attempt spent talking to upstream, as opposed to queueing or backing off. */
+    public static final class Exchange {
+        private volatile long nanos = -1;
+
+        public <T> T time(Supplier<T> exchange) {
+            long start = System.nanoTime();
+            T value = exchange.get();
+            nanos = System.nanoTime() - start;
+            return value;
+        }
+    }
+
+    // ── Hedged Execution ─────────────────────────────────────────────────────────
+    // A call that doesn't time its exchange is charged its whole duration
+    public <T> T execute(String systemPromptType, Function<String, T> call) {
+        return execute(systemPromptType, (model, exchange) -> call.apply(model));
+    }
+
+    public <T> T execute(String systemPromptType, Call<T> call) {
+        List<Route> candidates = candidates(systemPromptType);
+        calls.incrementAndGet();
+
+        BlockingQueue<Attempt<T>> completed = new LinkedBlockingQueue<>();
+        List<Attempt<T>> started = new ArrayList<>(2);
+        int next = 0;
+
+        // Primary, or the first model whose breaker lets us in
+        while (started.isEmpty() && next < candidates.size()) {
+            start(candidates.get(next++), call, completed, started);
+        }
+        if (started.isEmpty()) {
+            return runInline(candidates.get(0), call);
+        }
+
+        long hedgeAt = hedgeEnabled && next < candidates.size()
+                ? System.nanoTime() + hedgeDelay(started.get(0).route).toNanos()
+                : Long.MAX_VALUE;
+        int pending = 1;
+        Attempt<T> hedged = null;
+
+        try {
+            while (true) {
+                Attempt<T> done = hedgeAt == Long.MAX_VALUE
+                        ? completed.take()
+                        : completed.poll(hedgeAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+
+                if (done == null) {
+                    // Primary is past its p95 — fire one hedge if the budget and a free slot allow
+                    hedgeAt = Long.MAX_VALUE;
+                    if (!hedgeBudgetAvailable() || !limiter.hasHeadroom(1.0)
+                            || !policy.tryWithdrawRetry("hedge")) {
+                        hedge("skipped");
+                        continue;
+                    }
+                    int before = started.size();
+                    while (started.size() == before && next < candidates.size()) {
+                        start(candidates.get(next++), call, completed, started);
+                    }
+                    if (started.size() > before) {
+                        hedged = started.get(before);
+                        pending++;
+                        hedges.incrementAndGet();
+                        hedge("fired");
+                    }
+                    continue;
+                }
+
+                if (done.error == null) {
+                    if (done == hedged) hedge("won");
+                    return done.value;
+                }
+                if (--pending > 0) continue;
+
+                // Everything in flight failed; fail over only if it was the model's fault
+                if (!isModelFailure(done.error) || next >= candidates.size()) throw done.error;
+                if (!policy.tryWithdrawRetry("failover")) throw done.error;
+                int before = started.size();
+                while (started.size() == before && next < candidates.size()) {
+                    start(candidates.get(next++), call, completed, started);
+                }
+                if (started.size() == before) throw done.error;
+                pending = 1;
+                hedgeAt = Long.MAX_VALUE;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for upstream", e);
+        } finally {
+            for (Attempt<T> attempt : started) attempt.cancel();
+        }
+    }
+
+    // ── Single-Attempt Execution (streams) ───────────────────────────────────────
+    public <T> T executeOnce(String systemPromptType, Call<T> call) {
+        List<Route> candidates = candidates(systemPromptType);
+        for (Route route : candidates) {
+            if (route.breaker.tryAcquire(System.nanoTime())) {
+                return runTracked(route, call);
+            }
+        }
+        return runInline(candidates.get(0), call);
+    }
+
+    // ── Attempts ─────────────────────────────────────────────────────────────────
+    private static final class Attempt<T> {
+        private final Route route;
+        private Future<?> future;
+        private volatile T value;
+        private volatile RuntimeException error;
+
+        private Attempt(Route route) {
+            this.route = route;
+        }
+
+        private void cancel() {
+            if (future != null) future.cancel(true);
+        }
+    }
+
+    private <T> void start(Route route, Call<T> call,
+                              BlockingQueue<Attempt<T>> completed, List<Attempt<T>> started) {
+        if (!route.breaker.tryAcquire(System.nanoTime())) return;
+
+        Attempt<T> attempt = new Attempt<>(route);
+        try {
+            attempt.future = executor.submit(() -> {
+                try {
+                    attempt.value = runTracked(route, call);
+                } catch (RuntimeException e) {
+                    attempt.error = e;
+                }
+                completed.add(attempt);
+            });
+        } catch (TaskRejectedException e) {
+            route.breaker.onIgnored();
+            return;
+        }
+        started.add(attempt);
+    }
+
+    private <T> T runTracked(Route route, Call<T> call) {
+        long start = System.nanoTime();
+        Exchange exchange = new Exchange();
+        try {
+            T value = call.apply(route.model, exchange);
+            long elapsed = exchange.nanos >= 0 ? exchange.nanos : System.nanoTime() - start;
+            route.breaker.onSuccess(elapsed, System.nanoTime());
+            route.latency.record(elapsed);
+            route.latencyTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            outcome(route, "success");
+            return value;
+        } catch (RuntimeException e) {
+            if (Thread.currentThread().isInterrupted() || !isModelFailure(e)) {
+                route.breaker.onIgnored();
+                outcome(route, "ignored");
+            } else {
+                route.breaker.onFailure(System.nanoTime());
+                outcome(route, "failure");
+            }
+            throw e;
+        }
+    }
+
+    // Router pool saturated, or every breaker open: call the primary directly rather than fail
+    private <T> T runInline(Route route, Call<T> call) {
+        return call.apply(route.model, new Exchange());
+    }
+
+    // Local overload and request errors say nothing about the model's health
+    private static boolean isModelFailure(RuntimeException e) {
+        if (e instanceof UpstreamOverloadedException) return false;
+        if (e instanceof HttpStatusCodeException status && status.getStatusCode().is4xxClientError()) {
+            int code = status.getStatusCode().value();
+            return code == HttpStatus.TOO_MANY_REQUESTS.value()
+                    || code == HttpStatus.NOT_FOUND.value()
+                    || code == HttpStatus.REQUEST_TIMEOUT.value();
+        }
+        return true;
+    }
+
+    // ── Hedge Timing & Budget ────────────────────────────────────────────────────
+    private Duration hedgeDelay(Route route) {
+        if (route.latency.count() < 20) return initialHedgeDelay;
+        Duration p95 = Duration.ofNanos(route.latency.p95());
+        return p95.compareTo(minHedgeDelay) > 0 ? p95 : minHedgeDelay;
+    }
+
+    private boolean hedgeBudgetAvailable() {
+        return hedges.get() < calls.get() * maxHedgeRatio + 1;
+    }
+
+    // ── Routes ───────────────────────────────────────────────────────────────────
+    private static final class Route {
+        private final String model;
+        private final CircuitBreaker breaker;
+        private final LatencyWindow latency = new LatencyWindow(200);
+        private final Timer latencyTimer;
+
+        private Route(String model, CircuitBreaker breaker, Timer latencyTimer) {
+            this.model = model;
+            this.breaker = breaker;
+            this.latencyTimer = latencyTimer;
+        }
+    }
+
+    // Configured order, with models whose breaker is open moved to the back
+    private List<Route> candidates(String systemPromptType) {
+        long now = System.nanoTime();
+        List<Route> available = new ArrayList<>();
+        List<Route> tripped = new ArrayList<>();
+        for (String model : models(systemPromptType)) {
+            Route route = route(model);
+            (route.breaker.isCallPermitted(now) ? available : tripped).add(route);
+        }
+        available.addAll(tripped);
+        return available;
+    }
+
+    private List<String> models(String systemPromptType) {
+        String mode = SystemPrompts.modeOf(systemPromptType);
+        return modelsByMode.computeIfAbsent(mode, m -> {
+            String configured = environment.getProperty("router.models." + m);
+            return configured != null ? parseModels(configured) : defaultModels;
+        });
+    }
+
+    private Route route(String model) {
+        return routes.computeIfAbsent(model, m -> {
+            CircuitBreaker breaker = new CircuitBreaker(breakerWindow, breakerMinCalls, breakerFailureRate,
+                    slowCall.toNanos(), openDuration.toNanos());
+            Gauge.builder("router.breaker.state", breaker, b -> b.state().ordinal())
+                    .tag("model", m)
+                    .register(registry);
+            Timer timer = Timer.builder("router.latency")
+                    .tag("model", m)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            return new Route(m, breaker, timer);
+        });
+    }
+
+    private static List<String> parseModels(String value) {
+        List<String> models = Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .toList();
+        if (models.isEmpty()) throw new IllegalArgumentException("Empty model list: '" + value + "'");
+        return models;
+    }
+
+    private void outcome(Route route, String outcome) {
+        registry.counter("router.calls", "model", route.model, "outcome", outcome).increment();
+    }
+
+    private void hedge(String result) {
+        registry.counter("router.hedges", "result", result).increment();
+    }
+}
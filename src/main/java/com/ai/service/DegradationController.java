@@ -0,0 +1,201 @@
+package com.ai.service;
+
+import com.ai.config.SystemPrompts;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sheds optional work from general-mode chat when end-to-end latency misses its SLO.
+ *
+ * Every {@code slo.degradation.evaluate-interval} the p95 of the general-mode requests that
+ * finished (or failed, counted as over the SLO) within {@code slo.degradation.window} is compared to {@code slo.general.p95}. Above
+ * it, the level steps up one at a time, at most once per {@code step-up-interval}; once p95 is
+ * back under {@code recover-ratio} of the SLO (or there is too little traffic to tell), it steps
+ * down one level per {@code step-down-interval}. Each level keeps the ones before it:
+ *
+ *   1 CAP_OUTPUT    max_tokens is capped at {@code slo.degradation.max-tokens}
+ *   2 NO_SEARCH     Google/YouTube tools are not offered (getCurrentDateTime is local, so it stays),
+ *                   which rules out the serial tool round trip
+ *   3 TRIM_HISTORY  the history budget is scaled by {@code slo.degradation.history-ratio} and
+ *                   summaries of what that drops are not generated
+ *
+ * The level a chat request ran at is returned in the {@code X-Degradation-Level} header.
+ *
+ * slo.degradation.level / slo.latency.p95 / slo.degradation.changes{direction=up|down}
+ */
+@Component
+public class DegradationController {
+
+    private static final Logger log = LoggerFactory.getLogger(DegradationController.class);
+
+    public enum Level {
+        NORMAL, CAP_OUTPUT, NO_SEARCH, TRIM_HISTORY;
+
+        public boolean capsOutput() {
+            return compareTo(CAP_OUTPUT) >= 0;
+        }
+
+        public boolean searchTools() {
+            return compareTo(NO_SEARCH) < 0;
+        }
+
+        public boolean trimsHistory() {
+            return compareTo(TRIM_HISTORY) >= 0;
+        }
+    }
+
+    private static final Level[] LEVELS = Level.values();
+
+    private final boolean enabled;
+    private final long sloNanos;
+    private final double recoverRatio;
+    private final long windowNanos;
+    private final int minSamples;
+    private final long stepUpNanos;
+    private final long stepDownNanos;
+    private final int maxTokens;
+    private final double historyRatio;
+    private final MeterRegistry registry;
+
+    // Ring of recent (finish time, latency) samples
+    private final long[] finishedAt;
+    private final long[] latencies;
+    private int next;
+
+    private volatile Level level = Level.NORMAL;
+    private volatile long p95;
+    private long lastChange;
+
+    private final ScheduledExecutorService evaluator;
+
+    public DegradationController(
+            MeterRegistry registry,
+            @Value("${slo.degradation.enabled:true}") boolean enabled,
+            @Value("${slo.general.p95:8s}") Duration slo,
+            @Value("${slo.degradation.recover-ratio:0.7}") double recoverRatio,
+            @Value("${slo.degradation.window:60s}") Duration window,
+            @Value("${slo.degradation.min-samples:20}") int minSamples,
+            @Value("${slo.degradation.samples:1024}") int samples,
+            @Value("${slo.degradation.evaluate-interval:5s}") Duration evaluateInterval,
+            @Value("${slo.degradation.step-up-interval:10s}") Duration stepUpInterval,
+            @Value("${slo.degradation.step-down-interval:30s}") Duration stepDownInterval,
+            @Value("${slo.degradation.max-tokens:400}") int maxTokens,
+            @Value("${slo.degradation.history-ratio:0.5}") double historyRatio
+    ) {
+        this.registry      = registry;
+        this.enabled       = enabled;
+        this.sloNanos      = slo.toNanos();
+        this.recoverRatio  = recoverRatio;
+        this.windowNanos   = window.toNanos();
+        this.minSamples    = minSamples;
+        this.stepUpNanos   = stepUpInterval.toNanos();
+        this.stepDownNanos = stepDownInterval.toNanos();
+        this.maxTokens     = maxTokens;
+        this.historyRatio  = historyRatio;
+        this.finishedAt    = new long[samples];
+        this.latencies     = new long[samples];
+        this.lastChange    = System.nanoTime() - Math.max(stepUpNanos, stepDownNanos);
+
+        Gauge.builder("slo.degradation.level", this, c -> c.level.ordinal()).register(registry);
+        Gauge.builder("slo.latency.p95", this, c -> c.p95 / 1e9).baseUnit("seconds").register(registry);
+
+        this.evaluator = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "slo-degradation");
+            t.setDaemon(true);
+            return t;
+        });
+        if (enabled) {
+            evaluator.scheduleWithFixedDelay(this::evaluate,
+                    evaluateInterval.toMillis(), evaluateInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // ── Request Path ─────────────────────────────────────────────────────────────
+    /** Level to apply to one request; only general mode is degraded. Read once per request. */
+    public Level level(String systemPromptType) {
+        return isGeneral(systemPromptType) ? level : Level.NORMAL;
+    }
+
+    /** max_tokens for a request at this level, or null for no cap. */
+    public Integer maxTokens(Level level) {
+        return level.capsOutput() ? maxTokens : null;
+    }
+
+    /** Share of the mode's history budget to send at this level. */
+    public double historyRatio(Level level) {
+        return level.trimsHistory() ? historyRatio : 1.0;
+    }
+
+    /**
+     * End-to-end latency of one request that went upstream; other modes are ignored. A request
+     * that failed (timeout, upstream error, rejection) counts as at least the SLO, however fast
+     * it failed.
+     */
+    public void record(String systemPromptType, long nanos, boolean completed) {
+        if (!enabled || !isGeneral(systemPromptType)) return;
+        long latency = completed ? Math.max(1, nanos) : Math.max(nanos, sloNanos + 1);
+        synchronized (this) {
+            finishedAt[next] = System.nanoTime();
+            latencies[next] = latency;
+            next = (next + 1) % latencies.length;
+        }
+    }
+
+    private static boolean isGeneral(String systemPromptType) {
+        return "general".equals(SystemPrompts.modeOf(systemPromptType));
+    }
+
+    // ── Evaluation ───────────────────────────────────────────────────────────────
+    void evaluate() {
+        long now = System.nanoTime();
+        long[] recent = recent(now);
+        p95 = recent.length == 0 ? 0 : recent[Math.min(recent.length - 1, (int) Math.ceil(0.95 * recent.length) - 1)];
+
+        Level current = level;
+        boolean enoughData = recent.length >= minSamples;
+        if (enoughData && p95 > sloNanos && current.ordinal() < LEVELS.length - 1) {
+            if (now - lastChange >= stepUpNanos) change(current, LEVELS[current.ordinal() + 1], now, "up");
+        } else if ((!enoughData || p95 < sloNanos * recoverRatio) && current != Level.NORMAL) {
+            if (now - lastChange >= stepDownNanos) change(current, LEVELS[current.ordinal() - 1], now, "down");
+        }
+    }
+
+    private synchronized long[] recent(long now) {
+        long[] recent = new long[latencies.length];
+        int n = 0;
+        for (int i = 0; i < latencies.length; i++) {
+            if (latencies[i] > 0 && now - finishedAt[i] <= windowNanos) recent[n++] = latencies[i];
+        }
+        long[] sorted = Arrays.copyOf(recent, n);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private void change(Level from, Level to, long now, String direction) {
+        level = to;
+        lastChange = now;
+        registry.counter("slo.degradation.changes", "direction", direction).increment();
+        log.atWarn()
+                .addKeyValue("from", from)
+                .addKeyValue("to", to)
+                .addKeyValue("p95Ms", p95 / 1_000_000)
+                .addKeyValue("sloMs", sloNanos / 1_000_000)
+                .log("General-mode degradation level changed");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        evaluator.shutdownNow();
+    }
+}
@@ -0,0 +1,24 @@
+package com.ai.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether a per-request detail log line (reply previews, tool results) is written.
+ * Warnings and errors are never sampled.
+ */
+@Component
+public class LogSampler {
+
+    private final double rate;
+
+    public LogSampler(@Value("${logging.sample.rate:0.05}") double rate) {
+        this.rate = rate;
+    }
+
+    public boolean sample() {
+        return rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+}
@@ -0,0 +1,88 @@
+package com.ai.service;
+
+import com.ai.config.SystemPrompts;
+import com.ai.model.ChatCompletionResponse;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot-path meters for the OpenRouter request flow.
+ *
+ * openrouter.phase{phase,mode}       — build_messages, first_call, second_call, mcq_parse, summary
+ * openrouter.stream.first_token{mode} — time from request start to the first streamed delta
+ * openrouter.tool.duration{tool,outcome} / openrouter.tool.calls{tool,outcome}
+ * openrouter.finish_reason{mode,reason}
+ * openrouter.tokens{type=prompt|completion} — from the upstream usage field
+ */
+@Component
+public class OpenRouterMetrics {
+
+    private final MeterRegistry registry;
+    private final DistributionSummary promptTokens;
+    private final DistributionSummary completionTokens;
+
+    public OpenRouterMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.promptTokens     = tokens("prompt");
+        this.completionTokens = tokens("completion");
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    public void phase(String phase, String systemPromptType, Timer.Sample sample) {
+        sample.stop(Timer.builder("openrouter.phase")
+                .tag("phase", phase)
+                .tag("mode", SystemPrompts.modeOf(systemPromptType))
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    public void firstToken(String systemPromptType, long nanos) {
+        Timer.builder("openrouter.stream.first_token")
+                .tag("mode", SystemPrompts.modeOf(systemPromptType))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void toolDuration(String tool, String outcome, long nanos) {
+        Timer.builder("openrouter.tool.duration")
+                .tag("tool", String.valueOf(tool))
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void toolCall(String tool, String outcome) {
+        registry.counter("openrouter.tool.calls", "tool", String.valueOf(tool), "outcome", outcome).increment();
+    }
+
+    public void finishReason(String systemPromptType, String reason) {
+        registry.counter("openrouter.finish_reason",
+                "mode", SystemPrompts.modeOf(systemPromptType),
+                "reason", reason != null ? reason : "none").increment();
+    }
+
+    public void usage(ChatCompletionResponse.Usage usage) {
+        if (usage == null) return;
+        promptTokens.record(usage.promptTokens());
+        completionTokens.record(usage.completionTokens());
+    }
+
+    private DistributionSummary tokens(String type) {
+        return DistributionSummary.builder("openrouter.tokens")
+                .tag("type", type)
+                .baseUnit("tokens")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(32_000.0)
+                .register(registry);
+    }
+}
@@ -0,0 +1,146 @@
+package com.ai.service;
+
+import com.ai.config.SystemPrompts;
+import com.ai.model.ChatCompletionRequest;
+import com.ai.model.ChatMessage;
+import com.ai.model.ToolCall;
+import com.ai.tools.DateTimeTool;
+import com.ai.tools.GoogleSearchTool;
+import com.ai.tools.YouTubeSearchTool;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Serializes {@link ChatCompletionRequest}s straight to bytes with a streaming generator.
+ *
+ * The static parts — the system message for each prompt type and the tool definitions —
+ * are encoded once at startup and spliced in as raw UTF-8, so a request only pays for
+ * writing the session history.
+ */
+@Component
+public class OpenRouterRequestWriter {
+
+    private static final int INITIAL_BUFFER_BYTES = 8 * 1024;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    private final SerializableString generalSystemMessage;
+    private final Map<String, SerializableString> systemMessages;
+    private final SerializableString tools;
+    private final SerializableString localTools;
+
+    public OpenRouterRequestWriter() {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        this.generalSystemMessage = encodeSystemMessage(objectMapper, "general");
+        this.systemMessages = Map.of(
+                "general",     generalSystemMessage,
+                "mcq",         encodeSystemMessage(objectMapper, "mcq"),
+                "performance", encodeSystemMessage(objectMapper, "performance"),
+                "summary",     encodeSystemMessage(objectMapper, "summary")
+        );
+        this.tools = encode(objectMapper, List.of(
+                DateTimeTool.getToolDefinition(),
+                GoogleSearchTool.getToolDefinition(),
+                YouTubeSearchTool.getToolDefinition()
+        ));
+        this.localTools = encode(objectMapper, List.of(DateTimeTool.getToolDefinition()));
+    }
+
+    public byte[] write(ChatCompletionRequest request) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(INITIAL_BUFFER_BYTES);
+
+        try (JsonGenerator gen = jsonFactory.createGenerator(out)) {
+            gen.writeStartObject();
+            gen.writeStringField("model", request.model());
+            if (request.stream()) {
+                gen.writeBooleanField("stream", true);
+                // Ask for a final usage chunk so streamed calls report token counts too
+                gen.writeObjectFieldStart("stream_options");
+                gen.writeBooleanField("include_usage", true);
+                gen.writeEndObject();
+            }
+
+            gen.writeArrayFieldStart("messages");
+            gen.writeRawValue(systemMessage(request.systemPromptType()));
+            for (ChatMessage message : request.messages()) {
+                writeMessage(gen, message);
+            }
+            gen.writeEndArray();
+
+            if (request.withTools()) {
+                gen.writeFieldName("tools");
+                gen.writeRawValue(request.searchTools() ? tools : localTools);
+                gen.writeStringField("tool_choice", "auto");
+            }
+            if (request.maxTokens() != null) {
+                gen.writeNumberField("max_tokens", request.maxTokens());
+            }
+
+            gen.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return out.toByteArray();
+    }
+
+    // ── Message Encoding ─────────────────────────────────────────────────────────
+    private void writeMessage(JsonGenerator gen, ChatMessage message) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("role", message.role());
+        gen.writeStringField("content", message.content() != null ? message.content() : "");
+
+        if (message.hasToolCalls()) {
+            gen.writeArrayFieldStart("tool_calls");
+            for (ToolCall call : message.toolCalls()) {
+                gen.writeStartObject();
+                gen.writeStringField("id", call.id());
+                gen.writeStringField("type", call.type() != null ? call.type() : "function");
+                gen.writeObjectFieldStart("function");
+                gen.writeStringField("name", call.name());
+                gen.writeStringField("arguments", call.arguments() != null ? call.arguments() : "{}");
+                gen.writeEndObject();
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+
+        if (message.toolCallId() != null) {
+            gen.writeStringField("tool_call_id", message.toolCallId());
+        }
+
+        gen.writeEndObject();
+    }
+
+    private SerializableString systemMessage(String systemPromptType) {
+        String key = systemPromptType != null ? systemPromptType.toLowerCase(Locale.ROOT) : "general";
+        return systemMessages.getOrDefault(key, generalSystemMessage);
+    }
+
+    // ── Startup Encoding ─────────────────────────────────────────────────────────
+    private static SerializableString encodeSystemMessage(ObjectMapper objectMapper, String type) {
+        return encode(objectMapper, Map.of("role", "system", "content", SystemPrompts.getPrompt(type)));
+    }
+
+    private static SerializableString encode(ObjectMapper objectMapper, Object value) {
+        try {
+            SerializedString encoded = new SerializedString(objectMapper.writeValueAsString(value));
+            encoded.asUnquotedUTF8(); // warm the cached UTF-8 bytes
+            return encoded;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
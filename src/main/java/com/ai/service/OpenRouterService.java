@@ -1,12 +1,22 @@
 package com.ai.service;
 
+import com.ai.cache.SemanticCache;
 import com.ai.config.SystemPrompts;
+import com.ai.memory.ContextManager;
+import com.ai.model.ChatCompletionRequest;
+import com.ai.model.ChatCompletionResponse;
+import com.ai.model.ChatMessage;
+import com.ai.model.ToolCall;
+import com.ai.routing.ModelRouter;
 import com.ai.tools.DateTimeTool;
 import com.ai.tools.GoogleSearchTool;
+import com.ai.tools.ToolPrefetcher;
 import com.ai.tools.YouTubeSearchTool;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.memory.ChatMemory;
-import org.springframework.ai.chat.memory.MessageWindowChatMemory;
 import org.springframework.ai.chat.messages.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,11 +24,17 @@ import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Service
 public class OpenRouterService {
 
+    private static final Logger log = LoggerFactory.getLogger(OpenRouterService.class);
+
     @Value("${openrouter.api.key}")
     private String apiKey;
 
@@ -34,80 +50,289 @@ public class OpenRouterService {
     @Autowired
     private YouTubeSearchTool youTubeSearchTool;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private final RestTemplate restTemplate = new RestTemplate();
+    // Fans tool calls out with per-tool deadlines
+    @Autowired
+    private ToolCallRunner toolCallRunner;
+
+    // Likely search started alongside the first LLM call
+    @Autowired
+    private ToolPrefetcher toolPrefetcher;
 
-    // Per-session chat memory
-    private final Map<String, ChatMemory> memoryMap = new HashMap<>();
+    // Per-session chat memory (bounded, evicting — see SessionMemoryStore)
+    @Autowired
+    private ChatMemory chatMemory;
 
-    // ── Memory ───────────────────────────────────────────────────────────────────
-    private ChatMemory getMemory(String sessionId) {
-        return memoryMap.computeIfAbsent(sessionId, id ->
-                MessageWindowChatMemory.builder()
-                        .maxMessages(20)
-                        .build()
-        );
-    }
+    // Shared pooled client (see HttpClientConfig)
+    @Autowired
+    private RestTemplate restTemplate;
+
+    // Per-mode token budget + rolling summary for the history sent upstream
+    @Autowired
+    private ContextManager contextManager;
+
+    // Near-duplicate stateless general questions are answered locally
+    @Autowired
+    private SemanticCache semanticCache;
+
+    @Autowired
+    private OpenRouterRequestWriter requestWriter;
+
+    // Per-mode model lists, hedging and circuit breakers
+    @Autowired
+    private ModelRouter modelRouter;
+
+    // Admission, adaptive concurrency and retries for every upstream LLM call
+    @Autowired
+    private UpstreamCallPolicy upstreamCallPolicy;
+
+    // Per-mode weighted, per-session fair, deadline-aware queueing for upstream slots
+    @Autowired
+    private UpstreamLimiter upstreamLimiter;
+
+    // Sheds output size, search tools and history from general mode while it misses its SLO
+    @Autowired
+    private DegradationController degradation;
+
+    @Autowired
+    private OpenRouterMetrics metrics;
+
+    @Autowired
+    private LogSampler logSampler;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
     // ── Main Entry Point ─────────────────────────────────────────────────────────
     public String callOpenRouter(String sessionId, String userPrompt, String systemPromptType) throws Exception {
 
-        String systemPrompt = SystemPrompts.getPrompt(systemPromptType);
+        UpstreamLimiter.Ticket ticket = upstreamLimiter.ticket(systemPromptType, sessionId);
+        ChatMemory memory = chatMemory;
+        boolean cacheable = semanticCache.eligible(
+                systemPromptType, userPrompt, memory.get(sessionId).isEmpty());
+        if (cacheable) {
+            String cached = semanticCache.lookup(userPrompt);
+            if (cached != null) {
+                recordTurn(sessionId, userPrompt, cached);
+                logReply("cache", systemPromptType, cached);
+                return cached;
+            }
+        }
+
+        // Failures count too: timeouts and rejections are what an SLO breach looks like
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            String aiReply = callUpstream(sessionId, userPrompt, systemPromptType, ticket, cacheable);
+            completed = true;
+            return aiReply;
+        } finally {
+            degradation.record(systemPromptType, System.nanoTime() - start, completed);
+        }
+    }
+
+    private String callUpstream(String sessionId, String userPrompt, String systemPromptType,
+                                UpstreamLimiter.Ticket ticket, boolean cacheable) {
+        ChatMemory memory = chatMemory;
+        DegradationController.Level level = degradation.level(systemPromptType);
 
         // Save user message to memory
-        ChatMemory memory = getMemory(sessionId);
         memory.add(sessionId, new UserMessage(userPrompt));
 
-        // Build messages
-        List<Map<String, Object>> messages = buildMessages(sessionId, systemPrompt);
+        // Build messages (system prompt is pre-encoded by the request writer)
+        Timer.Sample buildSample = metrics.start();
+        List<ChatMessage> messages = buildMessages(sessionId, systemPromptType, level);
+        metrics.phase("build_messages", systemPromptType, buildSample);
 
         // MCQ and Performance don't need tools — clean JSON output only
         boolean useTools = !"mcq".equalsIgnoreCase(systemPromptType)
                 && !"performance".equalsIgnoreCase(systemPromptType);
 
-        // Build request body
-        Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("model", "openai/gpt-3.5-turbo");
-        requestBody.put("messages", messages);
-
-        if (useTools) {
-            List<Map<String, Object>> tools = List.of(
-                    DateTimeTool.getToolDefinition(),
-                    GoogleSearchTool.getToolDefinition(),
-                    YouTubeSearchTool.getToolDefinition()
-            );
-            requestBody.put("tools", tools);
-            requestBody.put("tool_choice", "auto");
+        ChatCompletionRequest request = new ChatCompletionRequest(
+                modelRouter.primary(systemPromptType), systemPromptType, messages, useTools, false,
+                degradation.maxTokens(level), level.searchTools());
+
+        ChatMessage responseMessage;
+        try (ToolPrefetcher.Prefetch prefetch = useTools && level.searchTools() ? toolPrefetcher.start(userPrompt) : null) {
+            // First API call
+            Timer.Sample firstSample = metrics.start();
+            ChatCompletionResponse firstResponse = complete(request, ticket);
+            metrics.phase("first_call", systemPromptType, firstSample);
+            metrics.usage(firstResponse.usage());
+
+            ChatCompletionResponse.Choice choice = firstResponse.firstChoice();
+            responseMessage = choice.message();
+            metrics.finishReason(systemPromptType, choice.finishReason());
+
+            // Handle tool calls (only for general mode)
+            if (useTools && responseMessage.hasToolCalls()) {
+                return handleToolCalls(sessionId, memory, request, responseMessage, prefetch, ticket);
+            }
         }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(apiKey);
+        // Direct reply
+        String aiReply = Objects.toString(responseMessage.content(), "");
+        memory.add(sessionId, new AssistantMessage(aiReply));
+        if (cacheable) semanticCache.put(userPrompt, aiReply);
+
+        logReply("direct", systemPromptType, aiReply);
+        return aiReply;
+    }
+
+    // ── Record A Turn Without Calling Upstream ───────────────────────────────────
+    // Used when a reply was produced elsewhere (e.g. a coalesced MCQ generation) but still
+    // belongs in this session's history.
+    public void recordTurn(String sessionId, String userPrompt, String reply) {
+        chatMemory.add(sessionId, List.of(new UserMessage(userPrompt), new AssistantMessage(reply)));
+    }
 
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+    // ── Stateless Call ───────────────────────────────────────────────────────────
+    // One upstream round trip that neither reads nor writes session memory — used for
+    // sub-generations whose result the caller records itself (e.g. MCQ batch chunks). The
+    // session is only used to schedule the call fairly; pass null for shared background work.
+    public String callStateless(String sessionId, String userPrompt, String systemPromptType) {
+        return callStateless(userPrompt, systemPromptType, upstreamLimiter.ticket(systemPromptType, sessionId));
+    }
+
+    // Same, for work nobody is waiting on yet (MCQ lookahead): it queues behind live requests
+    public String callSpeculative(String sessionId, String userPrompt, String systemPromptType) {
+        return callStateless(userPrompt, systemPromptType, upstreamLimiter.speculativeTicket(sessionId));
+    }
+
+    private String callStateless(String userPrompt, String systemPromptType, UpstreamLimiter.Ticket ticket) {
+        ChatCompletionRequest request = new ChatCompletionRequest(
+                modelRouter.primary(systemPromptType), systemPromptType,
+                List.of(ChatMessage.of("user", userPrompt)), false, false);
 
-        // First API call
-        ResponseEntity<Map> response = restTemplate.postForEntity(apiUrl, entity, Map.class);
-        Map result = response.getBody();
+        Timer.Sample sample = metrics.start();
+        ChatCompletionResponse response = complete(request, ticket);
+        metrics.phase("first_call", systemPromptType, sample);
+        metrics.usage(response.usage());
 
-        List choices = (List) result.get("choices");
-        Map choice = (Map) choices.get(0);
-        Map responseMessage = (Map) choice.get("message");
-        String finishReason = (String) choice.get("finish_reason");
+        ChatCompletionResponse.Choice choice = response.firstChoice();
+        metrics.finishReason(systemPromptType, choice.finishReason());
+        return Objects.toString(choice.message().content(), "");
+    }
 
-        System.out.println("Finish Reason : " + finishReason);
+    // Streaming counterpart of callStateless: relays content deltas to onDelta as they arrive
+    public String streamStateless(String sessionId, String userPrompt, String systemPromptType,
+                                  Consumer<String> onDelta) {
+        ChatCompletionRequest request = new ChatCompletionRequest(
+                modelRouter.primary(systemPromptType), systemPromptType,
+                List.of(ChatMessage.of("user", userPrompt)), false, true);
+
+        long start = System.nanoTime();
+        boolean[] firstTokenSeen = {false};
+        Timer.Sample sample = metrics.start();
+        StreamedReply reply = streamCompletion(request, upstreamLimiter.ticket(systemPromptType, sessionId), delta -> {
+            if (!firstTokenSeen[0]) {
+                firstTokenSeen[0] = true;
+                metrics.firstToken(systemPromptType, System.nanoTime() - start);
+            }
+            onDelta.accept(delta);
+        });
+        metrics.phase("first_call", systemPromptType, sample);
+        metrics.usage(reply.usage);
+        metrics.finishReason(systemPromptType, reply.finishReason);
+        return reply.content.toString();
+    }
 
-        // Handle tool calls (only for general mode)
-        List toolCalls = (List) responseMessage.get("tool_calls");
-        if (useTools && toolCalls != null && !toolCalls.isEmpty()) {
-            return handleToolCalls(sessionId, memory, messages, toolCalls, headers);
+    // ── Streaming Entry Point ────────────────────────────────────────────────────
+    // Same flow as callOpenRouter, but asks upstream for `stream: true` and relays each
+    // content delta to onDelta as it arrives. Memory is only updated once the stream ends.
+    public String streamOpenRouter(String sessionId, String userPrompt, String systemPromptType,
+                                   Consumer<String> onDelta, Consumer<String> onToolCall) throws Exception {
+
+        UpstreamLimiter.Ticket ticket = upstreamLimiter.ticket(systemPromptType, sessionId);
+        ChatMemory memory = chatMemory;
+        boolean cacheable = semanticCache.eligible(
+                systemPromptType, userPrompt, memory.get(sessionId).isEmpty());
+        if (cacheable) {
+            String cached = semanticCache.lookup(userPrompt);
+            if (cached != null) {
+                onDelta.accept(cached);
+                recordTurn(sessionId, userPrompt, cached);
+                logReply("cache", systemPromptType, cached);
+                return cached;
+            }
         }
 
-        // Direct reply
-        String aiReply = responseMessage.get("content").toString();
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            String aiReply = streamUpstream(sessionId, userPrompt, systemPromptType, ticket, cacheable,
+                    start, onDelta, onToolCall);
+            completed = true;
+            return aiReply;
+        } finally {
+            degradation.record(systemPromptType, System.nanoTime() - start, completed);
+        }
+    }
+
+    // Time-to-first-token is measured from the start of the request, across tool rounds
+    private String streamUpstream(String sessionId, String userPrompt, String systemPromptType,
+                                  UpstreamLimiter.Ticket ticket, boolean cacheable, long start,
+                                  Consumer<String> onDelta, Consumer<String> onToolCall) {
+        ChatMemory memory = chatMemory;
+        DegradationController.Level level = degradation.level(systemPromptType);
+
+        memory.add(sessionId, new UserMessage(userPrompt));
+
+        Timer.Sample buildSample = metrics.start();
+        List<ChatMessage> messages = buildMessages(sessionId, systemPromptType, level);
+        metrics.phase("build_messages", systemPromptType, buildSample);
+
+        boolean useTools = !"mcq".equalsIgnoreCase(systemPromptType)
+                && !"performance".equalsIgnoreCase(systemPromptType);
+
+        ChatCompletionRequest request = new ChatCompletionRequest(
+                modelRouter.primary(systemPromptType), systemPromptType, messages, useTools, true,
+                degradation.maxTokens(level), level.searchTools());
+
+        boolean[] firstTokenSeen = {false};
+        Consumer<String> timedDelta = delta -> {
+            if (!firstTokenSeen[0]) {
+                firstTokenSeen[0] = true;
+                metrics.firstToken(systemPromptType, System.nanoTime() - start);
+            }
+            onDelta.accept(delta);
+        };
+
+        StreamedReply reply;
+        List<ChatMessage> withTools = null;
+        try (ToolPrefetcher.Prefetch prefetch = useTools && level.searchTools() ? toolPrefetcher.start(userPrompt) : null) {
+            Timer.Sample firstSample = metrics.start();
+            reply = streamCompletion(request, ticket, timedDelta);
+            metrics.phase("first_call", systemPromptType, firstSample);
+            metrics.usage(reply.usage);
+            metrics.finishReason(systemPromptType, reply.finishReason);
+
+            // Model decided to call tools — run them, then stream the final answer
+            if (useTools && !reply.toolCalls.isEmpty()) {
+                List<ToolCall> toolCalls = reply.toolCallList();
+                for (ToolCall toolCall : toolCalls) {
+                    onToolCall.accept(toolCall.name());
+                }
+
+                withTools = new ArrayList<>(messages);
+                withTools.add(ChatMessage.assistantToolCalls(reply.content.toString(), toolCalls));
+                appendToolResults(withTools, toolCalls, prefetch);
+            }
+        }
+
+        if (withTools != null) {
+            Timer.Sample secondSample = metrics.start();
+            reply = streamCompletion(
+                    new ChatCompletionRequest(request.model(), systemPromptType, withTools, false, true,
+                            request.maxTokens(), true), ticket, timedDelta);
+            metrics.phase("second_call", systemPromptType, secondSample);
+            metrics.usage(reply.usage);
+            cacheable = false;
+        }
+
+        String aiReply = reply.content.toString();
         memory.add(sessionId, new AssistantMessage(aiReply));
+        if (cacheable) semanticCache.put(userPrompt, aiReply);
 
-        System.out.println("Direct Reply  : " + aiReply.substring(0, Math.min(120, aiReply.length())));
+        logReply("stream", systemPromptType, aiReply);
         return aiReply;
     }
 
@@ -115,71 +340,212 @@ public class OpenRouterService {
     private String handleToolCalls(
             String sessionId,
             ChatMemory memory,
-            List<Map<String, Object>> messages,
-            List toolCalls,
-            HttpHeaders headers
-    ) throws Exception {
-
-        System.out.println("=== TOOL CALLED ===");
+            ChatCompletionRequest firstRequest,
+            ChatMessage toolCallMessage,
+            ToolPrefetcher.Prefetch prefetch,
+            UpstreamLimiter.Ticket ticket
+    ) {
 
         // Add assistant tool-call message
-        messages.add(Map.of(
-                "role", "assistant",
-                "content", "",
-                "tool_calls", toolCalls
-        ));
+        List<ChatMessage> messages = new ArrayList<>(firstRequest.messages());
+        messages.add(ChatMessage.assistantToolCalls("", toolCallMessage.toolCalls()));
 
         // Execute each tool
-        for (Object toolCallObj : toolCalls) {
-            Map toolCall     = (Map) toolCallObj;
-            String toolCallId    = (String) toolCall.get("id");
-            Map function         = (Map) toolCall.get("function");
-            String functionName  = (String) function.get("name");
-            String argumentsJson = (String) function.get("arguments");
-
-            System.out.println("Tool Name     : " + functionName);
-            System.out.println("Arguments     : " + argumentsJson);
-
-            String toolResult = executeToolCall(functionName, argumentsJson);
-            System.out.println("Tool Result   : " + toolResult.substring(0, Math.min(200, toolResult.length())));
-
-            messages.add(Map.of(
-                    "role", "tool",
-                    "tool_call_id", toolCallId,
-                    "content", toolResult
-            ));
-        }
+        appendToolResults(messages, toolCallMessage.toolCalls(), prefetch);
 
         // Second API call — no tools, just final answer
-        Map<String, Object> secondBody = new HashMap<>();
-        secondBody.put("model", "openai/gpt-3.5-turbo");
-        secondBody.put("messages", messages);
+        ChatCompletionRequest secondRequest = new ChatCompletionRequest(
+                firstRequest.model(), firstRequest.systemPromptType(), messages, false, false,
+                firstRequest.maxTokens(), true);
+        Timer.Sample secondSample = metrics.start();
+        ChatCompletionResponse secondResponse = complete(secondRequest, ticket);
+        metrics.phase("second_call", firstRequest.systemPromptType(), secondSample);
+        metrics.usage(secondResponse.usage());
 
-        HttpEntity<Map<String, Object>> secondEntity = new HttpEntity<>(secondBody, headers);
-        ResponseEntity<Map> secondResponse = restTemplate.postForEntity(apiUrl, secondEntity, Map.class);
+        ChatMessage secondMessage = secondResponse.firstChoice().message();
 
-        Map secondResult   = secondResponse.getBody();
-        List secondChoices = (List) secondResult.get("choices");
-        Map secondChoice   = (Map) secondChoices.get(0);
-        Map secondMessage  = (Map) secondChoice.get("message");
-
-        String aiReply = secondMessage.get("content").toString();
+        String aiReply = Objects.toString(secondMessage.content(), "");
         memory.add(sessionId, new AssistantMessage(aiReply));
 
-        System.out.println("Tool Reply    : " + aiReply.substring(0, Math.min(120, aiReply.length())));
+        logReply("tool", firstRequest.systemPromptType(), aiReply);
         return aiReply;
     }
 
-    // ── Build Messages Array ──────────────────────────────────────────────────────
-    private List<Map<String, Object>> buildMessages(String sessionId, String systemPrompt) {
-        List<Map<String, Object>> messages = new ArrayList<>();
+    // ── Tool Execution ────────────────────────────────────────────────────────────
+    // Ordering, per-tool deadlines, degraded results and prefetch reuse: see ToolCallRunner
+    private void appendToolResults(List<ChatMessage> messages, List<ToolCall> toolCalls,
+                                   ToolPrefetcher.Prefetch prefetch) {
+        List<String> results = toolCallRunner.run(toolCalls, prefetch, this::executeToolCall);
+
+        for (int i = 0; i < toolCalls.size(); i++) {
+            ToolCall toolCall = toolCalls.get(i);
+            String toolResult = results.get(i);
+            if (logSampler.sample()) {
+                log.atInfo()
+                        .addKeyValue("tool", toolCall.name())
+                        .addKeyValue("arguments", toolCall.arguments())
+                        .addKeyValue("preview", preview(toolResult, 200))
+                        .log("Tool result sample");
+            }
+
+            messages.add(ChatMessage.toolResult(toolCall.id(), toolResult));
+        }
+    }
 
-        // System prompt always first
-        messages.add(Map.of("role", "system", "content", systemPrompt));
+    // ── Upstream Calls ───────────────────────────────────────────────────────────
+    // The router picks the model per attempt and may hedge to an alternate (see ModelRouter)
+    // The ticket is the caller's: hedges, retries and the post-tool call queue under its deadline
+    private ChatCompletionResponse complete(ChatCompletionRequest request, UpstreamLimiter.Ticket ticket) {
+        return modelRouter.execute(request.systemPromptType(),
+                (model, exchange) -> send(request.withModel(model), ticket, exchange));
+    }
 
-        // Chat history from memory
-        ChatMemory memory = getMemory(sessionId);
-        List<Message> history = memory.get(sessionId);
+    // Only the HTTP exchange is timed for the router, not the slot wait or retry backoff
+    private ChatCompletionResponse send(ChatCompletionRequest request, UpstreamLimiter.Ticket ticket,
+                                        ModelRouter.Exchange exchange) {
+        HttpEntity<byte[]> entity = new HttpEntity<>(requestWriter.write(request), jsonHeaders());
+        return upstreamCallPolicy.execute(ticket, () -> exchange.time(
+                () -> restTemplate.postForEntity(apiUrl, entity, ChatCompletionResponse.class).getBody()));
+    }
+
+    private StreamedReply streamCompletion(ChatCompletionRequest request, UpstreamLimiter.Ticket ticket,
+                                           Consumer<String> onDelta) {
+        return modelRouter.executeOnce(request.systemPromptType(), (model, exchange) -> {
+            byte[] payload = requestWriter.write(request.withModel(model));
+            HttpHeaders headers = jsonHeaders();
+
+            // The slot is held until the whole stream has been read; once a delta has been
+            // relayed to the client a retry would repeat it, so only failures before that retry
+            boolean[] relayed = {false};
+            Consumer<String> relay = delta -> {
+                relayed[0] = true;
+                onDelta.accept(delta);
+            };
+            return upstreamCallPolicy.execute(ticket,
+                    () -> exchange.time(() -> doStreamCompletion(payload, headers, relay)), () -> !relayed[0]);
+        });
+    }
+
+    private StreamedReply doStreamCompletion(byte[] payload, HttpHeaders headers, Consumer<String> onDelta) {
+        return restTemplate.execute(apiUrl, HttpMethod.POST,
+                upstream -> {
+                    upstream.getHeaders().putAll(headers);
+                    upstream.getHeaders().setAccept(List.of(MediaType.TEXT_EVENT_STREAM));
+                    upstream.getHeaders().setContentLength(payload.length);
+                    upstream.getBody().write(payload);
+                },
+                response -> {
+                    StreamedReply reply = new StreamedReply();
+                    BufferedReader reader = new BufferedReader(
+                            new InputStreamReader(response.getBody(), StandardCharsets.UTF_8));
+
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        // SSE frames are "data: {...}"; lines starting with ':' are keep-alive comments
+                        if (!line.startsWith("data:")) continue;
+                        String data = line.substring(5).trim();
+                        if (data.equals("[DONE]")) break;
+                        if (data.isEmpty()) continue;
+
+                        ChatCompletionResponse chunk = objectMapper.readValue(data, ChatCompletionResponse.class);
+                        if (chunk.usage() != null) reply.usage = chunk.usage();
+
+                        ChatCompletionResponse.Choice choice = chunk.firstChoice();
+                        if (choice == null) continue;
+
+                        if (choice.finishReason() != null) {
+                            reply.finishReason = choice.finishReason();
+                        }
+
+                        ChatMessage delta = choice.delta();
+                        if (delta == null) continue;
+
+                        String text = delta.content();
+                        if (text != null && !text.isEmpty()) {
+                            reply.content.append(text);
+                            onDelta.accept(text);
+                        }
+
+                        if (delta.toolCalls() != null) {
+                            for (ToolCall fragment : delta.toolCalls()) {
+                                reply.mergeToolCallDelta(fragment);
+                            }
+                        }
+                    }
+                    return reply;
+                });
+    }
+
+    private HttpHeaders jsonHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(apiKey);
+        return headers;
+    }
+
+    // Accumulates one streamed completion: content deltas and tool_call fragments keyed by index
+    private static class StreamedReply {
+        private final StringBuilder content = new StringBuilder();
+        private final SortedMap<Integer, ToolCallFragments> toolCalls = new TreeMap<>();
+        private String finishReason;
+        private ChatCompletionResponse.Usage usage;
+
+        private void mergeToolCallDelta(ToolCall fragment) {
+            int index = fragment.index() != null ? fragment.index() : toolCalls.size();
+            ToolCallFragments call = toolCalls.computeIfAbsent(index, i -> new ToolCallFragments());
+
+            if (fragment.id() != null) call.id = fragment.id();
+            if (fragment.name() != null) call.name.append(fragment.name());
+            if (fragment.arguments() != null) call.arguments.append(fragment.arguments());
+        }
+
+        private List<ToolCall> toolCallList() {
+            List<ToolCall> calls = new ArrayList<>(toolCalls.size());
+            for (ToolCallFragments f : toolCalls.values()) {
+                calls.add(new ToolCall(null, f.id, "function",
+                        new ToolCall.FunctionCall(f.name.toString(), f.arguments.toString())));
+            }
+            return calls;
+        }
+    }
+
+    private static class ToolCallFragments {
+        private String id;
+        private final StringBuilder name = new StringBuilder();
+        private final StringBuilder arguments = new StringBuilder();
+    }
+
+    // ── Logging ──────────────────────────────────────────────────────────────────
+    private void logReply(String path, String systemPromptType, String reply) {
+        if (logSampler.sample()) {
+            log.atInfo()
+                    .addKeyValue("path", path)
+                    .addKeyValue("mode", SystemPrompts.modeOf(systemPromptType))
+                    .addKeyValue("length", reply.length())
+                    .addKeyValue("preview", preview(reply, 120))
+                    .log("Reply sample");
+        }
+    }
+
+    private static String preview(String text, int max) {
+        return text.substring(0, Math.min(max, text.length()));
+    }
+
+    // ── Build Messages Array ──────────────────────────────────────────────────────
+    // Session history only — the system prompt is spliced in by OpenRouterRequestWriter.
+    // History is fitted to the mode's token budget; older turns are folded into a summary.
+    // A trimmed (degraded) budget doesn't feed the summary: those turns are sent again on recovery.
+    private List<ChatMessage> buildMessages(String sessionId, String systemPromptType,
+                                            DegradationController.Level level) {
+        List<Message> history = chatMemory.get(sessionId);
+        ContextManager.Context context = contextManager.compact(
+                sessionId, systemPromptType, history, toChatMessages(history), degradation.historyRatio(level));
+        if (!level.trimsHistory()) contextManager.summarizeAsync(sessionId, context, this::summarize);
+        return context.messages();
+    }
+
+    static List<ChatMessage> toChatMessages(List<Message> history) {
+        List<ChatMessage> messages = new ArrayList<>(history.size() + 4);
 
         for (Message msg : history) {
             String role = switch (msg.getMessageType()) {
@@ -188,12 +554,36 @@ public class OpenRouterService {
                 case SYSTEM    -> "system";
                 default        -> "user";
             };
-            messages.add(Map.of("role", role, "content", msg.getText()));
+            messages.add(ChatMessage.of(role, msg.getText()));
         }
 
         return messages;
     }
 
+    // ── Rolling Summary ──────────────────────────────────────────────────────────
+    // Runs on the summary executor (see ContextManager), never on a request thread
+    private String summarize(String previousSummary, List<ChatMessage> turns) {
+        StringBuilder prompt = new StringBuilder();
+        if (previousSummary != null) {
+            prompt.append("Summary so far:\n").append(previousSummary).append("\n\n");
+        }
+        prompt.append("Turns being removed:\n");
+        for (ChatMessage turn : turns) {
+            prompt.append(turn.role()).append(": ").append(turn.content()).append('\n');
+        }
+
+        ChatCompletionRequest request = new ChatCompletionRequest(
+                modelRouter.primary("summary"), "summary",
+                List.of(ChatMessage.of("user", prompt.toString())), false, false);
+
+        Timer.Sample sample = metrics.start();
+        ChatCompletionResponse response = complete(request, upstreamLimiter.ticket("summary", null));
+        metrics.phase("summary", "summary", sample);
+        metrics.usage(response.usage());
+
+        return Objects.toString(response.firstChoice().message().content(), "");
+    }
+
     // ── Tool Router ───────────────────────────────────────────────────────────────
     private String executeToolCall(String functionName, String argumentsJson) throws Exception {
         return switch (functionName) {
@@ -203,14 +593,12 @@ public class OpenRouterService {
             case "googleSearch" -> {
                 Map<String, String> args = objectMapper.readValue(argumentsJson, Map.class);
                 String query = args.get("query");
-                System.out.println("Google Query  : " + query);
                 yield googleSearchTool.search(query);
             }
 
             case "youtubeSearch" -> {
                 Map<String, String> args = objectMapper.readValue(argumentsJson, Map.class);
                 String query = args.get("query");
-                System.out.println("YouTube Query : " + query);
                 yield youTubeSearchTool.search(query);
             }
 
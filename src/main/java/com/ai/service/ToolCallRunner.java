@@ -0,0 +1,133 @@
+package com.ai.service;
+
+import com.ai.model.ToolCall;
+import com.ai.tools.ToolPrefetcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the tool calls of one model turn.
+ *
+ * All calls fan out on the tool executor and their results come back in the original
+ * tool_call order. Each tool has its own deadline, {@code tools.timeout.<tool>-ms} (else
+ * {@code tools.timeout.default-ms}), counted from when the calls were started; a tool that
+ * times out or fails becomes a degraded result telling the model to answer without it, so the
+ * second LLM call can still go ahead. A call matching the speculative prefetch (if any) takes
+ * its result instead of starting a new search. A prefetch that times out is abandoned, not
+ * interrupted: other requests may be coalesced onto it in the search result cache.
+ *
+ * openrouter.tool.calls{tool,outcome=ok|timeout|cancelled|error} / openrouter.tool.duration{tool,outcome}
+ */
+@Component
+public class ToolCallRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ToolCallRunner.class);
+
+    /** Runs one tool by name; what OpenRouterService dispatches to. */
+    @FunctionalInterface
+    public interface Invoker {
+        String invoke(String tool, String argumentsJson) throws Exception;
+    }
+
+    private final AsyncTaskExecutor toolExecutor;
+    private final Environment environment;
+    private final OpenRouterMetrics metrics;
+    private final long defaultTimeoutMs;
+
+    public ToolCallRunner(
+            @Qualifier("toolExecutor") AsyncTaskExecutor toolExecutor,
+            Environment environment,
+            OpenRouterMetrics metrics,
+            @Value("${tools.timeout.default-ms:5000}") long defaultTimeoutMs
+    ) {
+        this.toolExecutor     = toolExecutor;
+        this.environment      = environment;
+        this.metrics          = metrics;
+        this.defaultTimeoutMs = defaultTimeoutMs;
+    }
+
+    /** One result per call, in the order of {@code toolCalls}. */
+    public List<String> run(List<ToolCall> toolCalls, ToolPrefetcher.Prefetch prefetch, Invoker invoker) {
+        long start = System.nanoTime();
+        List<Future<String>> pending = new ArrayList<>(toolCalls.size());
+        boolean[] prefetched = new boolean[toolCalls.size()];
+
+        for (int i = 0; i < toolCalls.size(); i++) {
+            String functionName  = toolCalls.get(i).name();
+            String argumentsJson = toolCalls.get(i).arguments();
+
+            Future<String> claimed = prefetch != null ? prefetch.claim(functionName, argumentsJson) : null;
+            if (claimed != null) {
+                pending.add(claimed);
+                prefetched[i] = true;
+                continue;
+            }
+            try {
+                pending.add(toolExecutor.submit(() -> timed(invoker, functionName, argumentsJson)));
+            } catch (TaskRejectedException e) {
+                pending.add(CompletableFuture.failedFuture(e));
+            }
+        }
+
+        List<String> results = new ArrayList<>(toolCalls.size());
+        for (int i = 0; i < toolCalls.size(); i++) {
+            results.add(await(toolCalls.get(i).name(), pending.get(i), !prefetched[i], start));
+        }
+        return results;
+    }
+
+    private String await(String functionName, Future<String> future, boolean mayInterrupt, long startNanos) {
+        long timeoutMs = environment.getProperty(
+                "tools.timeout." + functionName + "-ms", Long.class, defaultTimeoutMs);
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs) - (System.nanoTime() - startNanos);
+
+        try {
+            String result = future.get(Math.max(0, remainingNanos), TimeUnit.NANOSECONDS);
+            metrics.toolCall(functionName, "ok");
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(mayInterrupt);
+            metrics.toolCall(functionName, "timeout");
+            log.atWarn().addKeyValue("tool", functionName).addKeyValue("timeoutMs", timeoutMs).log("Tool timed out");
+            return "Tool " + functionName + " timed out after " + timeoutMs
+                    + " ms. Answer without this result.";
+        } catch (InterruptedException e) {
+            future.cancel(mayInterrupt);
+            metrics.toolCall(functionName, "cancelled");
+            Thread.currentThread().interrupt();
+            return "Tool " + functionName + " was cancelled. Answer without this result.";
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            metrics.toolCall(functionName, "error");
+            log.atWarn().addKeyValue("tool", functionName).setCause(cause).log("Tool failed");
+            return "Tool " + functionName + " failed: " + cause.getMessage()
+                    + ". Answer without this result.";
+        }
+    }
+
+    private String timed(Invoker invoker, String functionName, String argumentsJson) throws Exception {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            String result = invoker.invoke(functionName, argumentsJson);
+            outcome = "ok";
+            return result;
+        } finally {
+            metrics.toolDuration(functionName, outcome, System.nanoTime() - start);
+        }
+    }
+}
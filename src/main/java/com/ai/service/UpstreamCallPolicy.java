@@ -0,0 +1,244 @@
+package com.ai.service;
+
+import com.ai.http.DeadlineExceededException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.InterruptedIOException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * How every upstream LLM call is made: admission through {@link UpstreamLimiter}, feedback to
+ * its AIMD limit, and retries of transient failures.
+ *
+ * 429, 5xx and I/O failures are retried up to {@code upstream.retry.max-attempts} attempts
+ * with full-jitter exponential backoff; a Retry-After header from upstream is the minimum
+ * wait, and one longer than {@code upstream.retry.max-retry-after} is not waited out at all.
+ * Retries draw on a shared budget that every call tops up by {@code upstream.retry.budget-ratio},
+ * so during a real outage retries stay a small fraction of traffic instead of multiplying it.
+ * No slot is held while backing off. A call cut off at {@code http.client.total-timeout} counts
+ * as a timeout for the limit but is not retried; the client would be gone before it finished.
+ *
+ * upstream.retries{cause=rate_limited|server_error|timeout|io|hedge|failover}
+ * upstream.retries.denied{reason=budget|retry_after|attempts|deadline} / upstream.retry.budget
+ */
+@Component
+public class UpstreamCallPolicy {
+
+    private final UpstreamLimiter limiter;
+    private final MeterRegistry registry;
+    private final int maxAttempts;
+    private final long baseBackoffNanos;
+    private final long maxBackoffNanos;
+    private final Duration maxRetryAfter;
+    private final RetryBudget budget;
+
+    public UpstreamCallPolicy(
+            UpstreamLimiter limiter,
+            MeterRegistry registry,
+            @Value("${upstream.retry.max-attempts:3}") int maxAttempts,
+            @Value("${upstream.retry.base-backoff:200ms}") Duration baseBackoff,
+            @Value("${upstream.retry.max-backoff:5s}") Duration maxBackoff,
+            @Value("${upstream.retry.max-retry-after:10s}") Duration maxRetryAfter,
+            @Value("${upstream.retry.budget-ratio:0.1}") double budgetRatio,
+            @Value("${upstream.retry.budget-max:20}") double budgetMax
+    ) {
+        this.limiter          = limiter;
+        this.registry         = registry;
+        this.maxAttempts      = Math.max(1, maxAttempts);
+        this.baseBackoffNanos = baseBackoff.toNanos();
+        this.maxBackoffNanos  = maxBackoff.toNanos();
+        this.maxRetryAfter    = maxRetryAfter;
+        this.budget           = new RetryBudget(budgetRatio, budgetMax);
+
+        Gauge.builder("upstream.retry.budget", budget, RetryBudget::available).register(registry);
+    }
+
+    public <T> T execute(Supplier<T> call) {
+        return execute(limiter.ticket("general", null), call, () -> true);
+    }
+
+    public <T> T execute(Supplier<T> call, BooleanSupplier retryable) {
+        return execute(limiter.ticket("general", null), call, retryable);
+    }
+
+    public <T> T execute(UpstreamLimiter.Ticket ticket, Supplier<T> call) {
+        return execute(ticket, call, () -> true);
+    }
+
+    // retryable: false once a retry would be visible to the caller (e.g. stream deltas relayed)
+    public <T> T execute(UpstreamLimiter.Ticket ticket, Supplier<T> call, BooleanSupplier retryable) {
+        budget.deposit();
+
+        for (int attempt = 1; ; attempt++) {
+            RuntimeException failure;
+            try (UpstreamLimiter.Permit permit = limiter.acquire(ticket)) {
+                try {
+                    T value = call.get();
+                    permit.onSuccess();
+                    return value;
+                } catch (RuntimeException e) {
+                    if (isOverload(e)) permit.onOverload();
+                    failure = e;
+                }
+            }
+
+            String cause = retryCause(failure);
+            // A call cut off at the total timeout has used up the time a retry would need
+            if (cause == null || !retryable.getAsBoolean() || Thread.currentThread().isInterrupted()
+                    || causedBy(failure, DeadlineExceededException.class)) {
+                throw failure;
+            }
+            if (attempt >= maxAttempts) {
+                throw denied("attempts", failure);
+            }
+
+            Duration retryAfter = retryAfter(failure);
+            if (retryAfter != null && retryAfter.compareTo(maxRetryAfter) > 0) {
+                throw denied("retry_after", failure);
+            }
+            // No point waiting out a backoff the client won't be around for
+            long backoff = backoffNanos(attempt, retryAfter);
+            if (System.nanoTime() + backoff - ticket.deadlineNanos() >= 0) {
+                throw denied("deadline", failure);
+            }
+
+            if (!budget.tryWithdraw()) {
+                throw denied("budget", failure);
+            }
+
+            registry.counter("upstream.retries", "cause", cause).increment();
+            try {
+                TimeUnit.NANOSECONDS.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Takes one retry from the budget for an attempt made outside {@link #execute} — a router
+     * hedge or failover — so it is counted against the same cap as the policy's own retries.
+     */
+    public boolean tryWithdrawRetry(String cause) {
+        if (!budget.tryWithdraw()) {
+            registry.counter("upstream.retries.denied", "reason", "budget").increment();
+            return false;
+        }
+        registry.counter("upstream.retries", "cause", cause).increment();
+        return true;
+    }
+
+    // ── Classification ───────────────────────────────────────────────────────────
+    // Signals that upstream wants less concurrency from us
+    static boolean isOverload(RuntimeException e) {
+        if (e instanceof HttpStatusCodeException status) {
+            int code = status.getStatusCode().value();
+            return code == HttpStatus.TOO_MANY_REQUESTS.value()
+                    || code == HttpStatus.SERVICE_UNAVAILABLE.value()
+                    || code == HttpStatus.GATEWAY_TIMEOUT.value();
+        }
+        return e instanceof ResourceAccessException && isTimeout(e);
+    }
+
+    /** Retry cause tag for a transient upstream failure, or null if it should not be retried. */
+    public static String retryCause(RuntimeException e) {
+        if (e instanceof HttpStatusCodeException status) {
+            if (status.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value()) return "rate_limited";
+            if (status.getStatusCode().is5xxServerError()) return "server_error";
+            return null;
+        }
+        if (e instanceof ResourceAccessException) {
+            return isTimeout(e) ? "timeout" : "io";
+        }
+        return null;
+    }
+
+    private static boolean isTimeout(Throwable e) {
+        return causedBy(e, HttpTimeoutException.class) || causedBy(e, InterruptedIOException.class);
+    }
+
+    private static boolean causedBy(Throwable e, Class<? extends Throwable> type) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (type.isInstance(t)) return true;
+        }
+        return false;
+    }
+
+    // ── Backoff ──────────────────────────────────────────────────────────────────
+    // Full jitter over the exponential window, never shorter than what upstream asked for
+    private long backoffNanos(int attempt, Duration retryAfter) {
+        long window = Math.min(maxBackoffNanos, baseBackoffNanos << Math.min(attempt - 1, 20));
+        long jittered = ThreadLocalRandom.current().nextLong(window + 1);
+        return retryAfter != null ? Math.max(jittered, retryAfter.toNanos()) : jittered;
+    }
+
+    /** Retry-After from an upstream error response (delta-seconds or HTTP date), or null. */
+    public static Duration retryAfter(RuntimeException e) {
+        if (!(e instanceof HttpStatusCodeException status) || status.getResponseHeaders() == null) return null;
+        String value = status.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null || value.isBlank()) return null;
+
+        value = value.trim();
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException ignored) {
+            // not delta-seconds, try the date form
+        }
+        try {
+            Duration until = Duration.between(ZonedDateTime.now(),
+                    ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME));
+            return until.isNegative() ? Duration.ZERO : until;
+        } catch (DateTimeParseException ignored) {
+            return null;
+        }
+    }
+
+    private RuntimeException denied(String reason, RuntimeException failure) {
+        registry.counter("upstream.retries.denied", "reason", reason).increment();
+        return failure;
+    }
+
+    // ── Retry Budget ─────────────────────────────────────────────────────────────
+    // Token bucket: each call adds `ratio` tokens (capped at `max`), each retry costs one
+    private static final class RetryBudget {
+        private final double ratio;
+        private final double max;
+        private double tokens;
+
+        private RetryBudget(double ratio, double max) {
+            this.ratio = ratio;
+            this.max = max;
+            this.tokens = max;
+        }
+
+        private synchronized void deposit() {
+            tokens = Math.min(max, tokens + ratio);
+        }
+
+        private synchronized boolean tryWithdraw() {
+            if (tokens < 1) return false;
+            tokens -= 1;
+            return true;
+        }
+
+        private synchronized double available() {
+            return tokens;
+        }
+    }
+}
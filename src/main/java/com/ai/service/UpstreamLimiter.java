@@ -0,0 +1,405 @@
+package com.ai.service;
+
+import com.ai.config.SystemPrompts;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive concurrency gate and scheduler for upstream LLM calls.
+ *
+ * At most {@code limit} calls are in flight; up to {@code queueCapacity} more wait (bounded by
+ * {@code queueTimeout}) for a slot. Anything beyond that is rejected immediately so overload
+ * turns into fast 429s instead of piling up threads.
+ *
+ * The limit follows AIMD between {@code upstream.min-concurrent} and {@code upstream.max-concurrent}:
+ * every successful call adds 1/limit (about +1 per limit's worth of successes), a 429 or
+ * timeout from upstream halves it. Decreases are spaced by {@code upstream.aimd.decrease-interval}
+ * so a burst of 429s from calls that were already in flight counts as one signal.
+ *
+ * Waiting calls are queued per mode, and a freed slot goes to the mode with the lowest virtual
+ * pass (stride scheduling): each grant advances a mode's pass by 1/weight, so under contention
+ * modes get slots in proportion to {@code upstream.scheduler.weight.<mode>} and a backlog of
+ * long MCQ generations can't starve chat turns. Within a mode, sessions take turns, and no
+ * session holds more than {@code upstream.scheduler.max-per-session} slots at once. Every call
+ * carries its client's deadline; a waiter whose client has given up is dropped at dequeue
+ * instead of being sent upstream for nobody.
+ *
+ * upstream.limiter.limit / upstream.limiter.in-flight / upstream.limiter.waiting
+ * upstream.limiter.queue{mode} / upstream.limiter.wait{mode}
+ * upstream.limiter.rejections{mode,reason} / upstream.limiter.decreases
+ */
+@Component
+public class UpstreamLimiter {
+
+    /** Who is asking: scheduling mode, session (null for background work) and client deadline. */
+    public record Ticket(String mode, String sessionId, long deadlineNanos) {
+
+        public boolean expired() {
+            return System.nanoTime() - deadlineNanos >= 0;
+        }
+    }
+
+    public static final String SPECULATIVE = "speculative";
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long decreaseIntervalNanos;
+    private final int queueCapacity;
+    private final Duration queueTimeout;
+    private final long retryAfterSeconds;
+    private final int maxPerSession;
+    private final Duration clientTimeout;
+    private final Environment environment;
+
+    private volatile double limit;
+    private long lastDecrease;
+    private int inFlight;
+    private int waiting;
+
+    // Scheduler state, guarded by lock
+    private final Map<String, ModeQueue> queues = new HashMap<>();
+    private final Map<String, Integer> inFlightBySession = new HashMap<>();
+    private double virtualTime;
+
+    private final MeterRegistry registry;
+
+    public UpstreamLimiter(
+            MeterRegistry registry,
+            Environment environment,
+            @Value("${upstream.max-concurrent:32}") int maxLimit,
+            @Value("${upstream.min-concurrent:4}") int minLimit,
+            @Value("${upstream.aimd.backoff-ratio:0.5}") double backoffRatio,
+            @Value("${upstream.aimd.decrease-interval:1s}") Duration decreaseInterval,
+            @Value("${upstream.queue-capacity:200}") int queueCapacity,
+            @Value("${upstream.queue-timeout:10s}") Duration queueTimeout,
+            @Value("${upstream.retry-after:2s}") Duration retryAfter,
+            @Value("${upstream.scheduler.max-per-session:4}") int maxPerSession,
+            @Value("${upstream.scheduler.client-timeout:150s}") Duration clientTimeout
+    ) {
+        this.registry = registry;
+        this.environment = environment;
+        this.maxLimit = maxLimit;
+        this.minLimit = Math.max(1, Math.min(minLimit, maxLimit));
+        this.backoffRatio = backoffRatio;
+        this.decreaseIntervalNanos = decreaseInterval.toNanos();
+        this.limit = maxLimit;
+        this.lastDecrease = System.nanoTime() - decreaseIntervalNanos;
+        this.queueCapacity = queueCapacity;
+        this.queueTimeout = queueTimeout;
+        this.retryAfterSeconds = Math.max(1, retryAfter.toSeconds());
+        this.maxPerSession = Math.max(1, maxPerSession);
+        this.clientTimeout = clientTimeout;
+
+        Gauge.builder("upstream.limiter.in-flight", this, l -> l.inFlight).register(registry);
+        Gauge.builder("upstream.limiter.waiting", this, l -> l.waiting).register(registry);
+        Gauge.builder("upstream.limiter.limit", this, UpstreamLimiter::currentLimit).register(registry);
+    }
+
+    // ── Tickets ──────────────────────────────────────────────────────────────────
+    /**
+     * A ticket for a request that starts now. Its deadline is when the client gives up:
+     * {@code upstream.scheduler.client-timeout.<mode>}, else {@code upstream.scheduler.client-timeout}.
+     */
+    public Ticket ticket(String systemPromptType, String sessionId) {
+        return ticketFor(SystemPrompts.modeOf(systemPromptType), sessionId);
+    }
+
+    /**
+     * A ticket for speculative work done on a session's behalf (MCQ lookahead). It queues as its
+     * own mode, so it gets slots at {@code upstream.scheduler.weight.speculative} rather than
+     * competing with live requests at their mode's weight.
+     */
+    public Ticket speculativeTicket(String sessionId) {
+        return ticketFor(SPECULATIVE, sessionId);
+    }
+
+    private Ticket ticketFor(String mode, String sessionId) {
+        Duration timeout = environment.getProperty(
+                "upstream.scheduler.client-timeout." + mode, Duration.class, clientTimeout);
+        return new Ticket(mode, sessionId, System.nanoTime() + timeout.toNanos());
+    }
+
+    // ── Admission ────────────────────────────────────────────────────────────────
+    /**
+     * A granted slot; close it when the upstream call (including any streamed body) is done.
+     * Report how the call went first so the limit can adapt — a permit closed without an
+     * outcome (local errors, cancellation) leaves the limit alone.
+     */
+    public interface Permit extends AutoCloseable {
+        void onSuccess();
+
+        void onOverload();
+
+        @Override
+        void close();
+    }
+
+    public Permit acquire() {
+        return acquire(ticket("general", null));
+    }
+
+    public Permit acquire(Ticket ticket) {
+        long start = System.nanoTime();
+        ModeQueue queue;
+
+        lock.lock();
+        try {
+            queue = queue(ticket.mode());
+            if (waiting == 0 && inFlight < currentLimit() && sessionHasRoom(ticket.sessionId())) {
+                take(ticket.sessionId());
+                queue.waitTimer.record(0, TimeUnit.NANOSECONDS);
+                return permit(ticket.sessionId());
+            }
+            if (waiting >= queueCapacity) {
+                throw reject(ticket, "queue_full", "Upstream queue is full");
+            }
+
+            Waiter waiter = new Waiter(ticket, lock.newCondition());
+            enqueue(queue, waiter);
+            dispatch();
+
+            long until = Math.min(start + queueTimeout.toNanos(), ticket.deadlineNanos());
+            try {
+                while (!waiter.granted) {
+                    if (waiter.expired) {
+                        throw reject(ticket, "deadline", "Client gave up while waiting for an upstream slot");
+                    }
+                    long remaining = until - System.nanoTime();
+                    if (remaining <= 0) {
+                        remove(queue, waiter);
+                        throw until == ticket.deadlineNanos()
+                                ? reject(ticket, "deadline", "Client gave up while waiting for an upstream slot")
+                                : reject(ticket, "timeout", "Timed out waiting for an upstream slot");
+                    }
+                    waiter.ready.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (waiter.granted) {
+                    release(ticket.sessionId());
+                } else {
+                    remove(queue, waiter);
+                }
+                throw reject(ticket, "interrupted", "Interrupted waiting for an upstream slot");
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        queue.waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return permit(ticket.sessionId());
+    }
+
+    private Permit permit(String sessionId) {
+        return new Permit() {
+            private boolean released;
+
+            @Override
+            public void onSuccess() {
+                increase();
+            }
+
+            @Override
+            public void onOverload() {
+                decrease();
+            }
+
+            @Override
+            public void close() {
+                lock.lock();
+                try {
+                    if (!released) {
+                        released = true;
+                        release(sessionId);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        };
+    }
+
+    // ── Scheduling (under lock) ──────────────────────────────────────────────────
+    private static final class Waiter {
+        private final Ticket ticket;
+        private final Condition ready;
+        private boolean granted;
+        private boolean expired;
+
+        private Waiter(Ticket ticket, Condition ready) {
+            this.ticket = ticket;
+            this.ready = ready;
+        }
+    }
+
+    private static final class ModeQueue {
+        private final double weight;
+        private final Timer waitTimer;
+        // Session → its waiters, in round-robin order; a served session moves to the back
+        private final LinkedHashMap<String, ArrayDeque<Waiter>> sessions = new LinkedHashMap<>();
+        private double pass;
+        private int size;
+
+        private ModeQueue(double weight, Timer waitTimer) {
+            this.weight = weight;
+            this.waitTimer = waitTimer;
+        }
+    }
+
+    private ModeQueue queue(String mode) {
+        return queues.computeIfAbsent(mode, m -> {
+            double weight = environment.getProperty("upstream.scheduler.weight." + m, Double.class, 1.0);
+            Timer timer = Timer.builder("upstream.limiter.wait")
+                    .tag("mode", m)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            ModeQueue queue = new ModeQueue(Math.max(0.01, weight), timer);
+            Gauge.builder("upstream.limiter.queue", queue, q -> q.size).tag("mode", m).register(registry);
+            return queue;
+        });
+    }
+
+    private void enqueue(ModeQueue queue, Waiter waiter) {
+        // A mode that was idle doesn't get credit for the time it wasn't asking
+        if (queue.size == 0) queue.pass = Math.max(queue.pass, virtualTime);
+        queue.sessions.computeIfAbsent(sessionKey(waiter.ticket.sessionId()), s -> new ArrayDeque<>()).add(waiter);
+        queue.size++;
+        waiting++;
+    }
+
+    private void remove(ModeQueue queue, Waiter waiter) {
+        String key = sessionKey(waiter.ticket.sessionId());
+        ArrayDeque<Waiter> waiters = queue.sessions.get(key);
+        if (waiters == null || !waiters.remove(waiter)) return;
+        if (waiters.isEmpty()) queue.sessions.remove(key);
+        queue.size--;
+        waiting--;
+        // It may have been at the head of its session, in front of someone who can go now
+        dispatch();
+    }
+
+    // Hands free slots to waiters: lowest-pass mode first, sessions round-robin within it
+    private void dispatch() {
+        while (waiting > 0 && inFlight < currentLimit()) {
+            ModeQueue best = null;
+            Waiter next = null;
+            for (ModeQueue queue : queues.values()) {
+                if (queue.size == 0 || (best != null && queue.pass >= best.pass)) continue;
+                Waiter candidate = nextEligible(queue);
+                if (candidate != null) {
+                    best = queue;
+                    next = candidate;
+                }
+            }
+            if (next == null) return; // everyone waiting is at their session's cap
+
+            String key = sessionKey(next.ticket.sessionId());
+            ArrayDeque<Waiter> waiters = best.sessions.remove(key);
+            waiters.poll();
+            if (!waiters.isEmpty()) best.sessions.put(key, waiters);
+            best.size--;
+            waiting--;
+
+            if (next.ticket.expired()) {
+                next.expired = true;
+                next.ready.signal();
+                continue;
+            }
+
+            virtualTime = best.pass;
+            best.pass += 1.0 / best.weight;
+            take(next.ticket.sessionId());
+            next.granted = true;
+            next.ready.signal();
+        }
+    }
+
+    // First session in turn whose head waiter may go now (or is dead and can be dropped)
+    private Waiter nextEligible(ModeQueue queue) {
+        for (ArrayDeque<Waiter> waiters : queue.sessions.values()) {
+            Waiter head = waiters.peek();
+            if (head != null && (sessionHasRoom(head.ticket.sessionId()) || head.ticket.expired())) return head;
+        }
+        return null;
+    }
+
+    private boolean sessionHasRoom(String sessionId) {
+        return sessionId == null || inFlightBySession.getOrDefault(sessionId, 0) < maxPerSession;
+    }
+
+    private void take(String sessionId) {
+        inFlight++;
+        if (sessionId != null) inFlightBySession.merge(sessionId, 1, Integer::sum);
+    }
+
+    private void release(String sessionId) {
+        inFlight--;
+        if (sessionId != null) inFlightBySession.computeIfPresent(sessionId, (s, n) -> n > 1 ? n - 1 : null);
+        dispatch();
+    }
+
+    // Background calls without a session share one turn per mode
+    private static String sessionKey(String sessionId) {
+        return sessionId != null ? sessionId : "";
+    }
+
+    // ── AIMD ─────────────────────────────────────────────────────────────────────
+    private void increase() {
+        lock.lock();
+        try {
+            int before = currentLimit();
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+            if (currentLimit() > before) dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void decrease() {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            if (now - lastDecrease < decreaseIntervalNanos) return;
+            lastDecrease = now;
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } finally {
+            lock.unlock();
+        }
+        registry.counter("upstream.limiter.decreases").increment();
+    }
+
+    int currentLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * True when nothing is queued and fewer than {@code maxUtilization} of the slots are taken —
+     * the gate for speculative work that should only use spare capacity.
+     */
+    public boolean hasHeadroom(double maxUtilization) {
+        lock.lock();
+        try {
+            return waiting == 0 && inFlight < currentLimit() * maxUtilization;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private UpstreamOverloadedException reject(Ticket ticket, String reason, String message) {
+        registry.counter("upstream.limiter.rejections", "mode", ticket.mode(), "reason", reason).increment();
+        return new UpstreamOverloadedException(message, retryAfterSeconds);
+    }
+}
@@ -0,0 +1,21 @@
+package com.ai.service;
+
+/**
+ * Thrown when an upstream LLM call can't be admitted — the wait queue is full or the wait
+ * timed out. Mapped to 429 with a Retry-After header by the controller.
+ */
+public class UpstreamOverloadedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public UpstreamOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -2,6 +2,7 @@ package com.ai.tools;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Component;
@@ -22,49 +23,64 @@ public class GoogleSearchTool {
     @Value("${google.search.cx}")
     private String cx;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private final RestTemplate restTemplate = new RestTemplate();
-
-    public String search(String query) {
-        try {
-            String encoded = URLEncoder.encode(query, StandardCharsets.UTF_8);
-            String url = "https://www.googleapis.com/customsearch/v1"
-                    + "?key=" + apiKey
-                    + "&cx=" + cx
-                    + "&q=" + encoded
-                    + "&num=3";
+    @Value("${google.search.api.url:https://www.googleapis.com/customsearch/v1}")
+    private String apiUrl;
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Accept", "application/json");
-            HttpEntity<Void> entity = new HttpEntity<>(headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-            JsonNode root = objectMapper.readTree(response.getBody());
-            JsonNode items = root.path("items");
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
-            if (!items.isArray() || items.isEmpty()) {
-                return "No Google results found for: " + query;
-            }
+    // Shared pooled client (see HttpClientConfig)
+    @Autowired
+    private RestTemplate restTemplate;
 
-            StringBuilder sb = new StringBuilder();
-            sb.append("[Google Search Results for: ").append(query).append("]\n\n");
+    @Autowired
+    private SearchResultCache resultCache;
 
-            for (int i = 0; i < Math.min(3, items.size()); i++) {
-                JsonNode item = items.get(i);
-                String title   = item.path("title").asText("");
-                String snippet = item.path("snippet").asText("").replace("\n", " ");
-                String link    = item.path("link").asText("");
+    public String search(String query) {
+        try {
+            String results = resultCache.get("googleSearch", query, this::fetch);
+            return results.isEmpty()
+                    ? "No Google results found for: " + query
+                    : "[Google Search Results for: " + query + "]\n\n" + results;
+        } catch (Exception e) {
+            return "Google search failed: " + e.getMessage();
+        }
+    }
 
-                sb.append(i + 1).append(". ").append(title).append("\n");
-                sb.append("   ").append(snippet, 0, Math.min(snippet.length(), 200)).append("\n");
-                sb.append("   URL: ").append(link).append("\n\n");
-            }
+    // Uncached upstream lookup — throws on failure so the error is never cached. The result is
+    // shared by every query that normalizes the same, so it carries no query text ("" = none).
+    private String fetch(String query) throws Exception {
+        String encoded = URLEncoder.encode(query, StandardCharsets.UTF_8);
+        String url = apiUrl
+                + "?key=" + apiKey
+                + "&cx=" + cx
+                + "&q=" + encoded
+                + "&num=3";
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Accept", "application/json");
+        HttpEntity<Void> entity = new HttpEntity<>(headers);
+
+        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+        JsonNode root = objectMapper.readTree(response.getBody());
+        JsonNode items = root.path("items");
+
+        if (!items.isArray() || items.isEmpty()) {
+            return "";
+        }
 
-            return sb.toString().trim();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < Math.min(3, items.size()); i++) {
+            JsonNode item = items.get(i);
+            String title   = item.path("title").asText("");
+            String snippet = item.path("snippet").asText("").replace("\n", " ");
+            String link    = item.path("link").asText("");
 
-        } catch (Exception e) {
-            return "Google search failed: " + e.getMessage();
+            sb.append(i + 1).append(". ").append(title).append("\n");
+            sb.append("   ").append(snippet, 0, Math.min(snippet.length(), 200)).append("\n");
+            sb.append("   URL: ").append(link).append("\n\n");
         }
+
+        return sb.toString().trim();
     }
 
     public static Map<String, Object> getToolDefinition() {
@@ -0,0 +1,79 @@
+package com.ai.tools;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.regex.Pattern;
+
+/**
+ * Guesses from the user prompt alone which search tool the model is about to call, and with
+ * roughly what query — keyword and pattern rules, no model.
+ *
+ * Video words ("video", "tutorial", "youtube", "watch", ...) predict youtubeSearch; freshness
+ * words ("latest", "today", "news", "current", a recent year, ...) predict googleSearch. The
+ * predicted query is the prompt without request filler and intent words, which is close to
+ * what the model writes itself ("show me a video on java streams" → "java streams").
+ */
+public final class IntentClassifier {
+
+    /** A predicted tool call. */
+    public record Intent(String tool, String query) {
+    }
+
+    private static final Pattern VIDEO = Pattern.compile(
+            "\\b(videos?|youtube|tutorials?|watch|lectures?|walkthroughs?|screencasts?)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern FRESH = Pattern.compile(
+            "\\b(latest|today|tonight|yesterday|this\\s+(week|month|year)|news|headlines?|current(ly)?|recent(ly)?"
+                    + "|right\\s+now|search|google|look\\s+up|price|weather|score|released?|announced|20[2-9]\\d)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    // Dropped from the predicted query: the tool already implies them, or they're request phrasing
+    private static final Set<String> FILLER = Set.of(
+            "show", "find", "give", "get", "search", "google", "look", "up", "tell", "want", "need",
+            "some", "any", "good", "best", "please", "me", "us", "video", "videos", "youtube", "watch",
+            "could", "would", "can", "you", "i", "recommend", "suggest", "share", "link", "links");
+
+    private IntentClassifier() {
+    }
+
+    /** Predicted tool call, or null when the prompt gives no strong hint. */
+    public static Intent classify(String prompt) {
+        if (prompt == null || prompt.isBlank()) return null;
+
+        String tool;
+        if (VIDEO.matcher(prompt).find()) tool = "youtubeSearch";
+        else if (FRESH.matcher(prompt).find()) tool = "googleSearch";
+        else return null;
+
+        String query = predictedQuery(prompt);
+        return query.isEmpty() ? null : new Intent(tool, query);
+    }
+
+    static String predictedQuery(String prompt) {
+        StringJoiner kept = new StringJoiner(" ");
+        for (String token : QueryNormalizer.normalize(prompt).split(" ")) {
+            if (!token.isEmpty() && !FILLER.contains(token)) kept.add(token);
+        }
+        return kept.toString();
+    }
+
+    /** Jaccard overlap of the two queries' content words, 0..1. */
+    public static double similarity(String predicted, String actual) {
+        Set<String> a = words(predicted);
+        Set<String> b = words(actual);
+        if (a.isEmpty() || b.isEmpty()) return 0;
+
+        long shared = a.stream().filter(b::contains).count();
+        return (double) shared / (a.size() + b.size() - shared);
+    }
+
+    private static Set<String> words(String query) {
+        Set<String> words = new HashSet<>();
+        for (String token : predictedQuery(query).split(" ")) {
+            if (!token.isEmpty()) words.add(token);
+        }
+        return words;
+    }
+}
@@ -0,0 +1,37 @@
+package com.ai.tools;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Normalizes search queries into cache keys: case-, punctuation-, whitespace- and
+ * stopword-insensitive, so "Java Streams tutorial" and "a java streams tutorial?" collide.
+ */
+public final class QueryNormalizer {
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "an", "the", "of", "for", "in", "on", "to", "and", "or", "with", "about",
+            "is", "are", "what", "how", "do", "does", "i", "me", "my", "please", "can", "you"
+    );
+
+    private QueryNormalizer() {
+    }
+
+    public static String normalize(String query) {
+        if (query == null) return "";
+
+        String[] tokens = query.toLowerCase(Locale.ROOT)
+                .replaceAll("[^\\p{L}\\p{N}+#]+", " ")
+                .trim()
+                .split(" ");
+
+        StringJoiner kept = new StringJoiner(" ");
+        for (String token : tokens) {
+            if (!token.isEmpty() && !STOPWORDS.contains(token)) kept.add(token);
+        }
+
+        // A query made only of stopwords still needs a stable key
+        return kept.length() > 0 ? kept.toString() : String.join(" ", tokens);
+    }
+}
@@ -0,0 +1,112 @@
+package com.ai.tools;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * TTL + size-bounded cache of search tool results, keyed by tool and normalized query.
+ *
+ * Concurrent lookups for the same key share one in-flight upstream call (single-flight).
+ * Only successful results are kept: a loader that throws fails its future, and Caffeine
+ * drops failed futures, so "search failed" never gets cached.
+ *
+ * The load runs on the first caller's thread, so a tool timeout that interrupts that caller
+ * would otherwise fail everyone who joined it. An interrupted load is instead withdrawn and
+ * cancelled, and the callers still waiting on it start the load again themselves. Values are
+ * shared across differently worded queries, so loaders must not put the query in the result.
+ */
+@Component
+public class SearchResultCache {
+
+    @FunctionalInterface
+    public interface Loader {
+        String load(String query) throws Exception;
+    }
+
+    private final AsyncCache<String, String> cache;
+    private final MeterRegistry registry;
+
+    public SearchResultCache(
+            MeterRegistry registry,
+            @Value("${tools.cache.ttl:30m}") Duration ttl,
+            @Value("${tools.cache.max-entries:10000}") long maxEntries
+    ) {
+        this.registry = registry;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxEntries)
+                .buildAsync();
+
+        Gauge.builder("tools.cache.size", cache, c -> c.synchronous().estimatedSize()).register(registry);
+    }
+
+    public String get(String tool, String query, Loader loader) throws Exception {
+        String key = tool + ":" + QueryNormalizer.normalize(query);
+
+        while (true) {
+            CompletableFuture<String> created = new CompletableFuture<>();
+            CompletableFuture<String> existing = cache.asMap().putIfAbsent(key, created);
+
+            if (existing == null) {
+                record(tool, "miss");
+                return load(key, query, loader, created);
+            }
+
+            record(tool, existing.isDone() ? "hit" : "coalesced");
+            try {
+                return await(existing);
+            } catch (CancellationException e) {
+                // The caller running the load was interrupted; take the load over
+            }
+        }
+    }
+
+    private String load(String key, String query, Loader loader, CompletableFuture<String> created) throws Exception {
+        try {
+            created.complete(loader.load(query));
+        } catch (Exception e) {
+            if (!interrupted(e)) {
+                created.completeExceptionally(e);
+            } else {
+                // Withdraw before cancelling so waiters that retry do not find it again
+                cache.asMap().remove(key, created);
+                created.cancel(false);
+                throw e;
+            }
+        }
+        return await(created);
+    }
+
+    private static boolean interrupted(Exception e) {
+        if (Thread.currentThread().isInterrupted()) return true;
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof InterruptedException
+                    || t instanceof InterruptedIOException
+                    || t instanceof ClosedByInterruptException) return true;
+        }
+        return false;
+    }
+
+    private String await(CompletableFuture<String> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    private void record(String tool, String result) {
+        registry.counter("tools.cache.requests", "tool", tool, "result", result).increment();
+    }
+}
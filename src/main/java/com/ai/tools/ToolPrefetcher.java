@@ -0,0 +1,157 @@
+package com.ai.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the search a tool-using answer will probably need while the first LLM call is still
+ * in flight, instead of after it.
+ *
+ * {@link IntentClassifier} predicts the tool and query from the prompt; the search is
+ * submitted to the tool executor right away. When the model's tool_calls arrive, a call to
+ * the same tool whose query overlaps the prediction by at least
+ * {@code tools.prefetch.min-similarity} takes the prefetched result; anything else runs as
+ * usual and the prefetch is discarded.
+ *
+ * tools.prefetch{tool,result=hit|miss|unused|rejected} — miss: the model called the tool with a
+ * different query; unused: it didn't call the tool
+ * tools.prefetch.saved{tool} — tool latency already behind us when the model asked for it
+ */
+@Component
+public class ToolPrefetcher {
+
+    /** The in-flight speculative call for one request; close it when the request is done. */
+    public interface Prefetch extends AutoCloseable {
+        /** The prefetched result if it matches this tool call, else null. At most one claim wins. */
+        Future<String> claim(String tool, String argumentsJson);
+
+        @Override
+        void close();
+    }
+
+    private static final Prefetch NONE = new Prefetch() {
+        @Override
+        public Future<String> claim(String tool, String argumentsJson) {
+            return null;
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    private final GoogleSearchTool googleSearchTool;
+    private final YouTubeSearchTool youTubeSearchTool;
+    private final AsyncTaskExecutor toolExecutor;
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final double minSimilarity;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public ToolPrefetcher(GoogleSearchTool googleSearchTool,
+                          YouTubeSearchTool youTubeSearchTool,
+                          @Qualifier("toolExecutor") AsyncTaskExecutor toolExecutor,
+                          MeterRegistry registry,
+                          @Value("${tools.prefetch.enabled:true}") boolean enabled,
+                          @Value("${tools.prefetch.min-similarity:0.5}") double minSimilarity) {
+        this.googleSearchTool  = googleSearchTool;
+        this.youTubeSearchTool = youTubeSearchTool;
+        this.toolExecutor      = toolExecutor;
+        this.registry          = registry;
+        this.enabled           = enabled;
+        this.minSimilarity     = minSimilarity;
+    }
+
+    public Prefetch start(String userPrompt) {
+        if (!enabled) return NONE;
+        IntentClassifier.Intent intent = IntentClassifier.classify(userPrompt);
+        if (intent == null) return NONE;
+
+        InFlight inFlight = new InFlight(intent);
+        try {
+            inFlight.future = toolExecutor.submit(() -> {
+                try {
+                    return search(intent);
+                } finally {
+                    inFlight.doneNanos = System.nanoTime();
+                }
+            });
+        } catch (TaskRejectedException e) {
+            // The tool pool is busy with real work; speculation is the first thing to give up
+            record(intent.tool(), "rejected");
+            return NONE;
+        }
+        return inFlight;
+    }
+
+    private String search(IntentClassifier.Intent intent) {
+        return "youtubeSearch".equals(intent.tool())
+                ? youTubeSearchTool.search(intent.query())
+                : googleSearchTool.search(intent.query());
+    }
+
+    // ── In-Flight Prefetch ───────────────────────────────────────────────────────
+    private final class InFlight implements Prefetch {
+        private final IntentClassifier.Intent intent;
+        private final long startNanos = System.nanoTime();
+        private volatile long doneNanos;
+        private Future<String> future;
+        private boolean claimed;
+        private boolean sameToolRequested;
+
+        private InFlight(IntentClassifier.Intent intent) {
+            this.intent = intent;
+        }
+
+        @Override
+        public synchronized Future<String> claim(String tool, String argumentsJson) {
+            if (claimed || !intent.tool().equals(tool)) return null;
+            sameToolRequested = true;
+            if (IntentClassifier.similarity(intent.query(), queryOf(argumentsJson)) < minSimilarity) return null;
+
+            claimed = true;
+            long now = System.nanoTime();
+            long done = doneNanos;
+            long saved = (done != 0 ? Math.min(done, now) : now) - startNanos;
+            Timer.builder("tools.prefetch.saved")
+                    .tag("tool", tool)
+                    .register(registry)
+                    .record(Math.max(0, saved), TimeUnit.NANOSECONDS);
+            record(tool, "hit");
+            return future;
+        }
+
+        // Not interrupted: the search may have other requests coalesced onto it in the result
+        // cache, and once it finishes its result is cached for the next asker anyway
+        @Override
+        public synchronized void close() {
+            if (claimed) return;
+            claimed = true;
+            future.cancel(false);
+            record(intent.tool(), sameToolRequested ? "miss" : "unused");
+        }
+    }
+
+    private String queryOf(String argumentsJson) {
+        try {
+            Object query = objectMapper.readValue(argumentsJson, Map.class).get("query");
+            return query != null ? query.toString() : "";
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    private void record(String tool, String result) {
+        registry.counter("tools.prefetch", "tool", tool, "result", result).increment();
+    }
+}
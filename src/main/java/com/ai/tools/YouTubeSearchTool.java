@@ -2,6 +2,7 @@ package com.ai.tools;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Component;
@@ -19,57 +20,72 @@ public class YouTubeSearchTool {
     @Value("${youtube.api.key}")
     private String apiKey;
 
+    @Value("${youtube.api.url:https://www.googleapis.com/youtube/v3/search}")
+    private String apiUrl;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final RestTemplate restTemplate = new RestTemplate();
+
+    // Shared pooled client (see HttpClientConfig)
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private SearchResultCache resultCache;
 
     public String search(String query) {
         try {
-            String encoded = URLEncoder.encode(query, StandardCharsets.UTF_8);
-            String url = "https://www.googleapis.com/youtube/v3/search"
-                    + "?key=" + apiKey
-                    + "&q=" + encoded
-                    + "&part=snippet"
-                    + "&type=video"
-                    + "&maxResults=3"
-                    + "&order=relevance";
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Accept", "application/json");
-            HttpEntity<Void> entity = new HttpEntity<>(headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-            JsonNode root = objectMapper.readTree(response.getBody());
-            JsonNode items = root.path("items");
-
-            if (!items.isArray() || items.isEmpty()) {
-                return "No YouTube videos found for: " + query;
-            }
-
-            StringBuilder sb = new StringBuilder();
-            sb.append("[YouTube Results for: ").append(query).append("]\n\n");
-
-            for (int i = 0; i < Math.min(3, items.size()); i++) {
-                JsonNode item     = items.get(i);
-                JsonNode snippet  = item.path("snippet");
-                String videoId    = item.path("id").path("videoId").asText("");
-                String title      = snippet.path("title").asText("");
-                String channel    = snippet.path("channelTitle").asText("");
-                String description = snippet.path("description").asText("").replace("\n", " ");
-                String publishedAt = snippet.path("publishedAt").asText("").substring(0, 10);
-
-                sb.append(i + 1).append(". ").append(title).append("\n");
-                sb.append("   Channel: ").append(channel).append(" | Published: ").append(publishedAt).append("\n");
-                sb.append("   ").append(description, 0, Math.min(description.length(), 150)).append("\n");
-                sb.append("   URL: https://www.youtube.com/watch?v=").append(videoId).append("\n\n");
-            }
-
-            return sb.toString().trim();
-
+            String results = resultCache.get("youtubeSearch", query, this::fetch);
+            return results.isEmpty()
+                    ? "No YouTube videos found for: " + query
+                    : "[YouTube Results for: " + query + "]\n\n" + results;
         } catch (Exception e) {
             return "YouTube search failed: " + e.getMessage();
         }
     }
 
+    // Uncached upstream lookup — throws on failure so the error is never cached. The result is
+    // shared by every query that normalizes the same, so it carries no query text ("" = none).
+    private String fetch(String query) throws Exception {
+        String encoded = URLEncoder.encode(query, StandardCharsets.UTF_8);
+        String url = apiUrl
+                + "?key=" + apiKey
+                + "&q=" + encoded
+                + "&part=snippet"
+                + "&type=video"
+                + "&maxResults=3"
+                + "&order=relevance";
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Accept", "application/json");
+        HttpEntity<Void> entity = new HttpEntity<>(headers);
+
+        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+        JsonNode root = objectMapper.readTree(response.getBody());
+        JsonNode items = root.path("items");
+
+        if (!items.isArray() || items.isEmpty()) {
+            return "";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < Math.min(3, items.size()); i++) {
+            JsonNode item     = items.get(i);
+            JsonNode snippet  = item.path("snippet");
+            String videoId    = item.path("id").path("videoId").asText("");
+            String title      = snippet.path("title").asText("");
+            String channel    = snippet.path("channelTitle").asText("");
+            String description = snippet.path("description").asText("").replace("\n", " ");
+            String publishedAt = snippet.path("publishedAt").asText("").substring(0, 10);
+
+            sb.append(i + 1).append(". ").append(title).append("\n");
+            sb.append("   Channel: ").append(channel).append(" | Published: ").append(publishedAt).append("\n");
+            sb.append("   ").append(description, 0, Math.min(description.length(), 150)).append("\n");
+            sb.append("   URL: https://www.youtube.com/watch?v=").append(videoId).append("\n\n");
+        }
+
+        return sb.toString().trim();
+    }
+
     public static Map<String, Object> getToolDefinition() {
         Map<String, Object> tool = new HashMap<>();
         tool.put("type", "function");
@@ -0,0 +1,59 @@
+package com.ai.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SemanticCacheTest {
+
+	private final SemanticCache cache = new SemanticCache(new SimpleMeterRegistry(),
+			true, 0.9, Duration.ofHours(1), 1000, 256, 8, 10);
+
+	@Test
+	void paraphrasedQuestionHitsTheCache() {
+		cache.put("What is polymorphism in Java?", "Polymorphism lets one interface have many forms.");
+
+		assertEquals("Polymorphism lets one interface have many forms.",
+				cache.lookup("what is polymorphism in java"));
+		assertEquals("Polymorphism lets one interface have many forms.",
+				cache.lookup("Explain polymorphism in Java please"));
+	}
+
+	@Test
+	void differentQuestionMisses() {
+		cache.put("What is polymorphism in Java?", "Polymorphism lets one interface have many forms.");
+
+		assertNull(cache.lookup("What is encapsulation in Java?"));
+		assertNull(cache.lookup("What is polymorphism in Python?"));
+	}
+
+	@Test
+	void evictedEntriesLeaveNoBucketIdsBehind() throws Exception {
+		SemanticCache tiny = new SemanticCache(new SimpleMeterRegistry(),
+				true, 0.9, Duration.ofHours(1), 0, 256, 8, 10);
+		for (int i = 0; i < 200; i++) {
+			tiny.put("What is topic number " + i + "?", "Answer " + i);
+		}
+
+		// Removal listeners run asynchronously
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (tiny.linkedIds() > 0 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, tiny.linkedIds());
+		assertNull(tiny.lookup("What is topic number 7?"));
+	}
+
+	@Test
+	void timeAndToolQuestionsAndFollowUpsBypass() {
+		assertTrue(cache.eligible("general", "What is polymorphism?", true));
+		assertFalse(cache.eligible("general", "What is the date today?", true));
+		assertFalse(cache.eligible("general", "Find me a YouTube video on recursion", true));
+		assertFalse(cache.eligible("general", "What are the latest Java features?", true));
+		assertFalse(cache.eligible("general", "What is polymorphism?", false));
+		assertFalse(cache.eligible("mcq", "What is polymorphism?", true));
+	}
+}
@@ -0,0 +1,97 @@
+package com.ai.mcq;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class McqBankTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@TempDir
+	Path dir;
+
+	private McqBank bank() {
+		return new McqBank(new SimpleMeterRegistry(), true, dir.resolve("bank.jsonl").toString(),
+				100, Duration.ofHours(1), 1000);
+	}
+
+	private List<JsonNode> questions(String... texts) throws Exception {
+		List<JsonNode> questions = new ArrayList<>();
+		for (String text : texts) {
+			questions.add(objectMapper.readTree("""
+					{"question": "%s", "options": {"A": "Yes", "B": "No"}, "correctAnswer": "A"}
+					""".formatted(text)));
+		}
+		return questions;
+	}
+
+	private static List<String> texts(List<JsonNode> questions) {
+		return questions.stream().map(q -> q.get("question").asText()).toList();
+	}
+
+	@Test
+	void sessionsAreNeverGivenTheSameQuestionTwice() throws Exception {
+		McqBank bank = bank();
+		bank.store("author", "Java", "easy", questions("Is Java typed?", "Is the JVM a VM?", "Is GC automatic?"));
+
+		assertTrue(bank.take("author", "Java", "easy", 3).isEmpty(), "the generating session already has them");
+		assertEquals(List.of("Is Java typed?", "Is the JVM a VM?"), texts(bank.take("s1", " java ", "Easy", 2)));
+		assertEquals(List.of("Is GC automatic?"), texts(bank.take("s1", "Java", "easy", 2)));
+		assertEquals(3, bank.take("s2", "Java", "easy", 5).size());
+		assertTrue(bank.take("s1", "Java", "hard", 5).isEmpty());
+	}
+
+	@Test
+	void nearIdenticalQuestionsAreBankedOnce() throws Exception {
+		McqBank bank = bank();
+		bank.store(null, "Java", "easy", questions("What is a JVM?", "what is a  JVM", "What is a JIT?"));
+
+		assertEquals(List.of("What is a JVM?", "What is a JIT?"), texts(bank.take("s1", "Java", "easy", 5)));
+		assertEquals(McqBank.hash("Qu'est-ce qu'une JVM ?"), McqBank.hash("quest ce quune jvm"));
+	}
+
+	@Test
+	void malformedQuestionsAreNotBanked() throws Exception {
+		McqBank bank = bank();
+		List<JsonNode> questions = new ArrayList<>();
+		questions.add(objectMapper.readTree("{\"question\": \"No options?\", \"correctAnswer\": \"A\"}"));
+		questions.add(objectMapper.readTree(
+				"{\"question\": \"Bad answer?\", \"options\": {\"A\": \"x\", \"B\": \"y\"}, \"correctAnswer\": \"E\"}"));
+		bank.store(null, "Java", "easy", questions);
+
+		assertTrue(bank.take("s1", "Java", "easy", 5).isEmpty());
+	}
+
+	@Test
+	void bankIsReloadedFromItsFile() throws Exception {
+		bank().store(null, "SQL", "hard", questions("What is a join?", "What is an index?"));
+
+		McqBank reloaded = bank();
+		reloaded.store(null, "SQL", "hard", questions("What is a join?"));
+		assertEquals(List.of("What is a join?", "What is an index?"), texts(reloaded.take("s1", "SQL", "hard", 5)));
+	}
+
+	@Test
+	void questionsReleasedAfterAFailedRequestAreGivenAgain() throws Exception {
+		McqBank bank = bank();
+		bank.store(null, "Java", "easy", questions("Is Java typed?", "Is the JVM a VM?", "Is GC automatic?"));
+
+		// Two banked, the shortfall call failed: the student never saw them
+		List<JsonNode> taken = bank.take("s1", "Java", "easy", 2);
+		assertEquals(1, bank.unseen("s1", "Java", "easy"));
+		bank.release("s1", "Java", "easy", taken);
+
+		assertEquals(3, bank.unseen("s1", "Java", "easy"));
+		assertEquals(texts(taken), texts(bank.take("s1", "Java", "easy", 2)));
+	}
+}
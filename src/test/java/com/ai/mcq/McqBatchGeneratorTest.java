@@ -0,0 +1,42 @@
+package com.ai.mcq;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class McqBatchGeneratorTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void mergedChunksAreDeduplicatedAndRenumbered() throws Exception {
+		List<JsonNode> questions = new ArrayList<>();
+		objectMapper.readTree("""
+				[{"questionNo": 1, "question": "What is a JVM?"}, {"questionNo": 2, "question": "What is GC?"}]
+				""").forEach(questions::add);
+		objectMapper.readTree("""
+				[{"questionNo": 1, "question": "what is a jvm? "}, {"questionNo": 2, "question": "What is JIT?"}]
+				""").forEach(questions::add);
+
+		List<JsonNode> merged = McqBatchGenerator.renumber(questions);
+
+		assertEquals(3, merged.size());
+		assertEquals(List.of(1, 2, 3), merged.stream().map(q -> q.get("questionNo").asInt()).toList());
+		assertEquals("What is JIT?", merged.get(2).get("question").asText());
+	}
+
+	@Test
+	void onlyMultiPartItemsGetAPartHint() {
+		McqBatchGenerator.Item item = new McqBatchGenerator.Item("SQL", 25, "hard");
+
+		assertEquals(McqGenerator.buildPrompt("SQL", "5", "hard"),
+				McqBatchGenerator.buildChunkPrompt(item, 5, 1, 1));
+		assertTrue(McqBatchGenerator.buildChunkPrompt(item, 10, 2, 3)
+				.startsWith("Generate exactly 10 MCQ questions on the topic: 'SQL'. Difficulty level: hard. This is part 2 of 3"));
+	}
+}
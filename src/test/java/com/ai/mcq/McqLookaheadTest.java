@@ -0,0 +1,112 @@
+package com.ai.mcq;
+
+import com.ai.service.UpstreamLimiter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class McqLookaheadTest {
+
+	private final ExecutorService pool = Executors.newSingleThreadExecutor();
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final UpstreamLimiter limiter = new UpstreamLimiter(registry, new MockEnvironment(), 4, 1, 0.5,
+			Duration.ofSeconds(1), 10, Duration.ofSeconds(1), Duration.ofSeconds(1), 4, Duration.ofMinutes(1));
+	private final McqLookahead lookahead = new McqLookahead(new TaskExecutorAdapter(pool), limiter, registry,
+			true, Duration.ofMinutes(5), 100, 0.5, Duration.ofSeconds(5));
+
+	private final McqKey java = McqKey.of("Java", "5", "easy");
+	private final List<JsonNode> batch = List.of(JsonNodeFactory.instance.objectNode().put("question", "Next?"));
+
+	@AfterEach
+	void shutdown() {
+		pool.shutdownNow();
+	}
+
+	private double count(String result) {
+		return registry.counter("mcq.lookahead", "result", result).count();
+	}
+
+	@Test
+	void followUpRequestGetsThePrefetchedBatch() throws Exception {
+		CountDownLatch done = new CountDownLatch(1);
+		lookahead.schedule("s1", java, () -> {
+			done.countDown();
+			return batch;
+		});
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+
+		assertEquals(batch, lookahead.claim("s1", McqKey.of(" java ", "5", "Easy")));
+		assertNull(lookahead.claim("s1", java), "a batch is handed out once");
+	}
+
+	@Test
+	void switchingTopicCancelsThePrefetch() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch interrupted = new CountDownLatch(1);
+		lookahead.schedule("s1", java, () -> {
+			started.countDown();
+			try {
+				Thread.sleep(10_000);
+			} catch (InterruptedException e) {
+				interrupted.countDown();
+			}
+			return batch;
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		assertNull(lookahead.claim("s1", McqKey.of("SQL", "5", "easy")));
+		assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+		assertEquals(1, count("discarded"));
+	}
+
+	@Test
+	void anotherQuizOnTheStreamOrBatchPathCancelsThePrefetch() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch interrupted = new CountDownLatch(1);
+		lookahead.schedule("s1", java, () -> {
+			started.countDown();
+			try {
+				Thread.sleep(10_000);
+			} catch (InterruptedException e) {
+				interrupted.countDown();
+			}
+			return batch;
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		lookahead.discardUnless("s1", McqKey.of("java", "5", "EASY"));
+		assertEquals(0, count("discarded"), "the same quiz keeps its prefetch");
+
+		lookahead.discardUnless("s1", McqKey.of("SQL", "5", "easy"));
+		assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+		assertEquals(1, count("discarded"));
+		assertNull(lookahead.claim("s1", java));
+	}
+
+	@Test
+	void nothingIsPrefetchedWhileUpstreamIsBusy() {
+		UpstreamLimiter.Permit first = limiter.acquire();
+		UpstreamLimiter.Permit second = limiter.acquire();
+		try {
+			lookahead.schedule("s1", java, () -> batch);
+			assertEquals(1, count("skipped_busy"));
+			assertNull(lookahead.claim("s1", java));
+		} finally {
+			first.close();
+			second.close();
+		}
+	}
+}
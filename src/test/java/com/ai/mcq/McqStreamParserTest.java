@@ -0,0 +1,54 @@
+package com.ai.mcq;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class McqStreamParserTest {
+
+	private static final String Q1 = """
+			{"questionNo": 1, "question": "What does {} mean in \\"Java\\"?",
+			 "options": {"A": "block", "B": "map", "C": "set", "D": "none"},
+			 "correctAnswer": "A", "explanation": "Braces delimit a block."}""";
+
+	private static final String Q2 = """
+			{"questionNo": 2, "question": "2+2?",
+			 "options": {"A": "3", "B": "4", "C": "5", "D": "6"},
+			 "correctAnswer": "B", "explanation": "Arithmetic."}""";
+
+	@Test
+	void emitsEachQuestionAsItClosesAcrossArbitraryChunks() {
+		List<JsonNode> out = new ArrayList<>();
+		McqStreamParser parser = new McqStreamParser(new ObjectMapper(), out::add);
+
+		String payload = "```json\n[" + Q1 + ",\n" + Q2 + "]\n```";
+		for (int i = 0; i < payload.length(); i += 7) {
+			parser.feed(payload.substring(i, Math.min(payload.length(), i + 7)));
+			if (payload.substring(0, Math.min(payload.length(), i + 7)).contains("\"Arithmetic.\"}")) {
+				assertEquals(2, out.size());
+			}
+		}
+
+		assertEquals(2, out.size());
+		assertEquals("What does {} mean in \"Java\"?", out.get(0).get("question").asText());
+		assertEquals("B", out.get(1).get("correctAnswer").asText());
+	}
+
+	@Test
+	void skipsMalformedItemsOneByOne() {
+		List<JsonNode> out = new ArrayList<>();
+		McqStreamParser parser = new McqStreamParser(new ObjectMapper(), out::add);
+
+		parser.feed("[" + Q1 + ", {\"questionNo\": 2, \"question\": \"broken\", \"options\": {\"A\": 1,,}}, "
+				+ "{\"questionNo\": 3}, " + Q2 + ", {\"questionNo\": 4, \"question\": \"trunc");
+
+		assertEquals(2, out.size());
+		assertEquals(2, parser.getEmitted());
+		assertEquals(2, parser.getSkipped());
+	}
+}
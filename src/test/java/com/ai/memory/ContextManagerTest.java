@@ -0,0 +1,114 @@
+package com.ai.memory;
+
+import com.ai.model.ChatMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContextManagerTest {
+
+	private static final String MCQ_JSON = """
+			```json
+			[{"questionNo": 1, "question": "What is a JVM?", "options": {"A": "A virtual machine", "B": "A compiler",
+			  "C": "An IDE", "D": "A library"}, "correctAnswer": "A", "explanation": "The JVM runs bytecode."},
+			 {"questionNo": 2, "question": "What does GC do?", "options": {"A": "Frees memory", "B": "Compiles",
+			  "C": "Links", "D": "Loads"}, "correctAnswer": "A", "explanation": "It reclaims unreachable objects."}]
+			```""";
+
+	private final MockEnvironment environment = new MockEnvironment()
+			.withProperty("context.budget.general", "200");
+
+	// Runs summaries inline so the test can observe them
+	private final ContextManager manager = new ContextManager(environment, new TaskExecutorAdapter(Runnable::run),
+			new SimpleMeterRegistry(), 2000, true, Duration.ofMinutes(30));
+
+	@Test
+	void olderMcqSetsAreReducedToTheirQuestions() {
+		List<Message> history = List.of(
+				new UserMessage("Generate 2 MCQs"), new AssistantMessage(MCQ_JSON),
+				new UserMessage("Generate 2 more"), new AssistantMessage(MCQ_JSON),
+				new UserMessage("Explain question 2"));
+
+		List<ChatMessage> sent = compact("s1", "performance", history).messages();
+
+		assertEquals("[Earlier MCQ set, JSON omitted. Questions asked: 1) What is a JVM? 2) What does GC do?]",
+				sent.get(1).content());
+		assertEquals(MCQ_JSON, sent.get(3).content());
+	}
+
+	@Test
+	void overBudgetTurnsAreDroppedAndFoldedIntoTheSummary() {
+		List<Message> history = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			history.add(new UserMessage("Question " + i + " " + "about Java generics ".repeat(10)));
+			history.add(new AssistantMessage("Answer " + i + " " + "type erasure explained ".repeat(10)));
+		}
+		history.add(new UserMessage("And wildcards?"));
+
+		AtomicInteger calls = new AtomicInteger();
+		ContextManager.Context first = compact("s2", "general", history);
+		assertTrue(first.sentTokens() <= 200 + TokenEstimator.estimate("And wildcards?"));
+		assertTrue(first.savedTokens() > 0);
+		assertEquals("And wildcards?", first.messages().get(first.messages().size() - 1).content());
+
+		manager.summarizeAsync("s2", first, (previous, turns) -> {
+			calls.incrementAndGet();
+			assertNull(previous);
+			return "Student is studying Java generics.";
+		});
+
+		// Next request sends the summary and has nothing new to fold in
+		ContextManager.Context second = compact("s2", "general", history);
+		assertEquals("system", second.messages().get(0).role());
+		assertTrue(second.messages().get(0).content().endsWith("Student is studying Java generics."));
+		assertFalse(second.needsSummary());
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	void coverageSurvivesReloadedMessagesAndIsResetOnClear() {
+		List<Message> history = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			history.add(new UserMessage("Question " + i + " " + "about Java generics ".repeat(10)));
+			history.add(new AssistantMessage("ok"));
+		}
+		history.add(new UserMessage("And wildcards?"));
+
+		AtomicInteger calls = new AtomicInteger();
+		manager.summarizeAsync("s3", compact("s3", "general", history), (previous, turns) -> {
+			calls.incrementAndGet();
+			return "Student is studying Java generics.";
+		});
+
+		// Same turns, new instances — as when the mapped store decodes the session again
+		List<Message> reloaded = history.stream()
+				.map(m -> m instanceof UserMessage ? (Message) new UserMessage(m.getText()) : new AssistantMessage(m.getText()))
+				.toList();
+		ContextManager.Context again = compact("s3", "general", reloaded);
+		assertFalse(again.needsSummary(), "turns already in the summary are not folded in twice");
+		assertEquals(1, calls.get());
+
+		manager.onSessionCleared(new SessionClearedEvent("s3"));
+		ContextManager.Context cleared = compact("s3", "general", reloaded);
+		assertNotEquals("system", cleared.messages().get(0).role());
+		assertNull(cleared.previousSummary());
+	}
+
+	private ContextManager.Context compact(String sessionId, String type, List<Message> history) {
+		List<ChatMessage> converted = history.stream()
+				.map(m -> ChatMessage.of(m instanceof UserMessage ? "user" : "assistant", m.getText()))
+				.toList();
+		return manager.compact(sessionId, type, history, converted);
+	}
+}
@@ -0,0 +1,148 @@
+package com.ai.memory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedLogMemoryStoreTest {
+
+	@TempDir
+	Path dir;
+
+	private MappedLogMemoryStore open() throws IOException {
+		return open(new SimpleMeterRegistry());
+	}
+
+	private MappedLogMemoryStore open(SimpleMeterRegistry registry) throws IOException {
+		// Tiny segments so a few turns span several files; maintenance is driven by the test
+		return new MappedLogMemoryStore(registry, event -> {}, 4, Duration.ofMinutes(30), dir,
+				DataSize.ofKilobytes(1), 100, Duration.ofHours(1), 0.5, 3, Duration.ofHours(1));
+	}
+
+	private static List<String> texts(List<Message> messages) {
+		return messages.stream().map(Message::getText).toList();
+	}
+
+	@Test
+	void keepsTheLastMaxMessagesInOrder() throws IOException {
+		try (MappedLogMemoryStore store = open()) {
+			for (int i = 1; i <= 3; i++) {
+				store.add("s1", List.of(new UserMessage("q" + i), new AssistantMessage("a" + i)));
+			}
+			assertEquals(List.of("q2", "a2", "q3", "a3"), texts(store.get("s1")));
+			assertTrue(store.get("unknown").isEmpty());
+		}
+	}
+
+	@Test
+	void historySurvivesARestart() throws IOException {
+		try (MappedLogMemoryStore store = open()) {
+			store.add("s1", List.of(new UserMessage("hello"), new AssistantMessage("hi there")));
+			store.add("s2", List.of(new UserMessage("other session")));
+			store.add("s1", List.of(new UserMessage("and again")));
+		}
+		try (MappedLogMemoryStore store = open()) {
+			List<Message> history = store.get("s1");
+			assertEquals(List.of("hello", "hi there", "and again"), texts(history));
+			assertInstanceOf(AssistantMessage.class, history.get(1));
+			assertEquals(List.of("other session"), texts(store.get("s2")));
+		}
+	}
+
+	@Test
+	void clearIsDurable() throws IOException {
+		try (MappedLogMemoryStore store = open()) {
+			store.add("s1", List.of(new UserMessage("forget me")));
+			store.clear("s1");
+			store.add("s1", List.of(new UserMessage("fresh start")));
+		}
+		try (MappedLogMemoryStore store = open()) {
+			assertEquals(List.of("fresh start"), texts(store.get("s1")));
+		}
+	}
+
+	@Test
+	void decodedHistoryKeepsMessageIdentityBetweenTurns() throws IOException {
+		try (MappedLogMemoryStore store = open()) {
+			store.add("s1", List.of(new UserMessage("q1")));
+			Message first = store.get("s1").get(0);
+			store.add("s1", List.of(new AssistantMessage("a1")));
+			assertSame(first, store.get("s1").get(0));
+		}
+	}
+
+	@Test
+	void compactionReclaimsSegmentsAndKeepsWindows() throws IOException {
+		String padding = "x".repeat(200);
+		try (MappedLogMemoryStore store = open()) {
+			for (int i = 0; i < 30; i++) {
+				store.add("s1", List.of(new UserMessage("q" + i + padding)));
+			}
+			long before = segmentFiles();
+			store.maintain();
+
+			assertTrue(segmentFiles() < before, "expected dead segments to be deleted");
+			assertEquals(List.of("q26", "q27", "q28", "q29"),
+					texts(store.get("s1")).stream().map(t -> t.substring(0, 3)).toList());
+		}
+		try (MappedLogMemoryStore store = open()) {
+			assertEquals(4, store.get("s1").size());
+			assertTrue(store.get("s1").get(3).getText().startsWith("q29"));
+		}
+	}
+
+	@Test
+	void lookupsAreCountedOnReads() throws IOException {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		try (MappedLogMemoryStore store = open(registry)) {
+			store.add("s1", List.of(new UserMessage("q1")));
+			store.add("s1", List.of(new AssistantMessage("a1")));
+			store.get("s1");
+			store.get("s1");
+			store.get("nobody");
+
+			assertEquals(2.0, registry.counter("chat.memory.lookups", "result", "hit").count());
+			assertEquals(1.0, registry.counter("chat.memory.lookups", "result", "miss").count());
+		}
+	}
+
+	@Test
+	void loggedBytesShrinkWithCompactionAndMatchAfterARestart() throws IOException {
+		String padding = "x".repeat(200);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		double compacted;
+		try (MappedLogMemoryStore store = open(registry)) {
+			for (int i = 0; i < 30; i++) {
+				store.add("s1", List.of(new UserMessage("q" + i + padding)));
+			}
+			double before = registry.get("chat.memory.log.bytes").gauge().value();
+			store.maintain();
+			compacted = registry.get("chat.memory.log.bytes").gauge().value();
+			assertTrue(compacted < before, "deleted segments must not count");
+		}
+
+		SimpleMeterRegistry reopened = new SimpleMeterRegistry();
+		try (MappedLogMemoryStore store = open(reopened)) {
+			assertEquals(compacted, reopened.get("chat.memory.log.bytes").gauge().value());
+		}
+	}
+
+	private long segmentFiles() throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.count();
+		}
+	}
+}
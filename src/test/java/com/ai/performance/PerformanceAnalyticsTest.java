@@ -0,0 +1,61 @@
+package com.ai.performance;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerformanceAnalyticsTest {
+
+	@Test
+	void scoresAreWeightedByDifficultyAndPaceIsRelativeToIt() {
+		PerformanceAnalytics.Report hard = PerformanceAnalytics.analyze("  Java   Streams ", "HARD", 7, 10, 20);
+		assertEquals("java streams", hard.topic());
+		assertEquals(0.7, hard.accuracy(), 1e-9);
+		assertEquals(84, hard.adjustedScore());
+		assertEquals("Good", hard.rating());
+		assertEquals("fast", hard.pace());
+
+		PerformanceAnalytics.Report easy = PerformanceAnalytics.analyze("java streams", "easy", 7, 10, 20);
+		assertEquals(60, easy.adjustedScore());
+		assertEquals("Needs Work", easy.rating());
+		assertEquals("steady", easy.pace());
+	}
+
+	@Test
+	void malformedInputIsClampedInsteadOfRejected() {
+		PerformanceAnalytics.Report report = PerformanceAnalytics.analyze(null, "impossible", 12, 0, -5);
+
+		assertEquals("unknown", report.topic());
+		assertEquals("medium", report.difficulty());
+		assertEquals(1, report.total());
+		assertEquals(1.0, report.accuracy());
+		assertEquals(100, report.adjustedScore());
+	}
+
+	@Test
+	void equivalentResultsShareABucketAndPrompt() {
+		assertEquals(3, PerformanceAnalytics.accuracyBucket(0.6, 5));
+		assertEquals(3, PerformanceAnalytics.accuracyBucket(0.79, 5));
+		assertEquals(4, PerformanceAnalytics.accuracyBucket(1.0, 5));
+
+		PerformanceFeedbackCache.Bucket bucket = new PerformanceFeedbackCache.Bucket("sql joins", 3, "medium", "slow", "Good");
+		String prompt = PerformanceFeedbackCache.buildBucketPrompt(bucket, 5);
+		assertTrue(prompt.contains("60–79%"));
+		assertTrue(prompt.contains("sql joins"));
+		assertTrue(prompt.contains("Rating: Good"));
+		assertTrue(PerformanceFeedbackCache.buildBucketPrompt(
+				new PerformanceFeedbackCache.Bucket("sql joins", 4, "medium", "slow", "Excellent"), 5).contains("80–100%"));
+	}
+
+	@Test
+	void anAccuracyBandSpanningTwoRatingsIsSplitByRating() {
+		// Both are in the 60–79% band, but the hard-difficulty weight lifts one to Excellent
+		PerformanceAnalytics.Report good = PerformanceAnalytics.analyze("sql", "hard", 6, 10, 60);
+		PerformanceAnalytics.Report excellent = PerformanceAnalytics.analyze("sql", "hard", 75, 100, 60);
+		assertEquals("Good", good.rating());
+		assertEquals("Excellent", excellent.rating());
+		assertEquals(PerformanceAnalytics.accuracyBucket(good.accuracy(), 5),
+				PerformanceAnalytics.accuracyBucket(excellent.accuracy(), 5));
+		assertNotEquals(PerformanceFeedbackCache.bucketOf(good, 5), PerformanceFeedbackCache.bucketOf(excellent, 5));
+	}
+}
@@ -0,0 +1,124 @@
+package com.ai.routing;
+
+import com.ai.service.UpstreamCallPolicy;
+import com.ai.service.UpstreamLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelRouterTest {
+
+	private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final UpstreamLimiter limiter = new UpstreamLimiter(registry, new MockEnvironment(), 1, 1, 0.5,
+			Duration.ofSeconds(1), 10, Duration.ofSeconds(10), Duration.ofSeconds(1), 4, Duration.ofMinutes(1));
+	private final ModelRouter router;
+
+	ModelRouterTest() {
+		executor.setCorePoolSize(8);
+		executor.setQueueCapacity(0);
+		executor.initialize();
+
+		MockEnvironment environment = new MockEnvironment().withProperty("router.models.general", "fast, backup");
+		UpstreamCallPolicy policy = new UpstreamCallPolicy(limiter, registry, 3,
+				Duration.ofMillis(10), Duration.ofMillis(100), Duration.ofSeconds(1), 0.1, 20);
+		router = new ModelRouter(environment, executor, registry, policy, limiter, "fast",
+				true, Duration.ofMillis(100), Duration.ofMillis(50), 1.0,
+				10, 4, 0.5, Duration.ofSeconds(30), Duration.ofMinutes(1));
+	}
+
+	@AfterEach
+	void shutdown() {
+		executor.shutdown();
+	}
+
+	@Test
+	void slowPrimaryIsHedgedAndTheBackupWins() {
+		List<String> tried = new CopyOnWriteArrayList<>();
+
+		String answer = router.execute("general", model -> {
+			tried.add(model);
+			if (model.equals("fast")) sleep(2_000);
+			return model;
+		});
+
+		assertEquals("backup", answer);
+		assertEquals(List.of("fast", "backup"), tried);
+		assertEquals(1.0, registry.counter("router.hedges", "result", "won").count());
+	}
+
+	@Test
+	void failedPrimaryFailsOverAndRepeatedFailuresOpenTheBreaker() {
+		for (int i = 0; i < 4; i++) {
+			assertEquals("backup", router.execute("general", model -> {
+				if (model.equals("fast")) throw new ResourceAccessException("connection reset");
+				return model;
+			}));
+		}
+
+		// Breaker for "fast" is open now: the backup is tried first
+		List<String> tried = new CopyOnWriteArrayList<>();
+		router.execute("general", model -> {
+			tried.add(model);
+			return model;
+		});
+		assertEquals(List.of("backup"), tried);
+	}
+
+	@Test
+	void noHedgeWhileUpstreamCallsAreQueued() throws Exception {
+		UpstreamLimiter.Permit held = limiter.acquire();
+		CompletableFuture<Void> queued = CompletableFuture.runAsync(() -> limiter.acquire().close());
+		while (registry.get("upstream.limiter.waiting").gauge().value() < 1) Thread.sleep(5);
+
+		List<String> tried = new CopyOnWriteArrayList<>();
+		String answer = router.execute("general", model -> {
+			tried.add(model);
+			sleep(300);
+			return model;
+		});
+
+		assertEquals("fast", answer);
+		assertEquals(List.of("fast"), tried, "a hedge would only join the queue");
+		assertEquals(1.0, registry.counter("router.hedges", "result", "skipped").count());
+
+		held.close();
+		queued.get(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	void queueWaitIsNotChargedToTheModel() {
+		// 150 ms in total (as if queued for a slot), but only 10 ms talking to upstream
+		for (int i = 0; i < 3; i++) {
+			router.execute("general", (model, exchange) -> {
+				sleep(140);
+				return exchange.time(() -> {
+					sleep(10);
+					return model;
+				});
+			});
+		}
+		assertTrue(registry.get("router.latency").tag("model", "fast").timer()
+				.max(TimeUnit.MILLISECONDS) < 100);
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("cancelled");
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package com.ai.service;
+
+import com.ai.service.DegradationController.Level;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DegradationControllerTest {
+
+	private static final long SLOW = Duration.ofSeconds(2).toNanos();
+	private static final long NEAR = Duration.ofMillis(900).toNanos();
+	private static final long FAST = Duration.ofMillis(100).toNanos();
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private DegradationController controller;
+
+	@AfterEach
+	void shutdown() {
+		controller.shutdown();
+	}
+
+	// SLO 1s, recover under 0.7s; evaluation is driven by the test
+	private DegradationController controller(Duration stepUp, Duration stepDown) {
+		controller = new DegradationController(registry, true, Duration.ofSeconds(1), 0.7, Duration.ofMinutes(1),
+				10, 32, Duration.ofHours(1), stepUp, stepDown, 256, 0.5);
+		return controller;
+	}
+
+	private void record(DegradationController controller, String type, long nanos, int times) {
+		for (int i = 0; i < times; i++) controller.record(type, nanos, true);
+	}
+
+	@Test
+	void stepsUpOneLevelAtATimeWhileOverTheSlo() {
+		DegradationController controller = controller(Duration.ZERO, Duration.ZERO);
+		record(controller, "general", SLOW, 32);
+
+		controller.evaluate();
+		Level level = controller.level("general");
+		assertEquals(Level.CAP_OUTPUT, level);
+		assertEquals(256, controller.maxTokens(level));
+		assertTrue(level.searchTools());
+
+		controller.evaluate();
+		assertEquals(Level.NO_SEARCH, controller.level("general"));
+		assertFalse(controller.level("general").searchTools());
+
+		controller.evaluate();
+		controller.evaluate();
+		level = controller.level("general");
+		assertEquals(Level.TRIM_HISTORY, level);
+		assertEquals(0.5, controller.historyRatio(level));
+
+		assertEquals(Level.NORMAL, controller.level("mcq"), "only general mode is degraded");
+		assertNull(controller.maxTokens(controller.level("mcq")));
+		assertEquals(3, registry.counter("slo.degradation.changes", "direction", "up").count());
+	}
+
+	@Test
+	void recoversStepByStepOnceUnderTheRecoverRatio() {
+		DegradationController controller = controller(Duration.ZERO, Duration.ZERO);
+		record(controller, "general", SLOW, 32);
+		controller.evaluate();
+		controller.evaluate();
+		assertEquals(Level.NO_SEARCH, controller.level("general"));
+
+		// Between the recover threshold and the SLO the level holds
+		record(controller, "general", NEAR, 32);
+		controller.evaluate();
+		assertEquals(Level.NO_SEARCH, controller.level("general"));
+
+		record(controller, "general", FAST, 32);
+		controller.evaluate();
+		assertEquals(Level.CAP_OUTPUT, controller.level("general"));
+		controller.evaluate();
+		assertEquals(Level.NORMAL, controller.level("general"));
+		assertEquals(1.0, controller.historyRatio(controller.level("general")));
+	}
+
+	@Test
+	void spacesChangesAndIgnoresOtherModes() {
+		DegradationController controller = controller(Duration.ofHours(1), Duration.ofHours(1));
+		record(controller, "mcq", SLOW, 32);
+		controller.evaluate();
+		assertEquals(Level.NORMAL, controller.level("general"), "mcq latency is not general-mode latency");
+
+		record(controller, "general", SLOW, 32);
+		controller.evaluate();
+		controller.evaluate();
+		assertEquals(Level.CAP_OUTPUT, controller.level("general"), "one step per step-up-interval");
+	}
+
+	@Test
+	void fastFailuresCountAsSloBreaches() {
+		DegradationController controller = controller(Duration.ZERO, Duration.ZERO);
+		record(controller, "general", FAST, 2);
+		for (int i = 0; i < 30; i++) controller.record("general", FAST, false);
+
+		controller.evaluate();
+		assertEquals(Level.CAP_OUTPUT, controller.level("general"), "rejected requests must not look healthy");
+		controller.evaluate();
+		assertEquals(Level.NO_SEARCH, controller.level("general"));
+	}
+}
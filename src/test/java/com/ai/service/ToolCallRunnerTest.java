@@ -0,0 +1,96 @@
+package com.ai.service;
+
+import com.ai.model.ToolCall;
+import com.ai.tools.ToolPrefetcher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ToolCallRunnerTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final ExecutorService pool = Executors.newCachedThreadPool();
+	private final ToolCallRunner runner = new ToolCallRunner(new TaskExecutorAdapter(pool),
+			new MockEnvironment().withProperty("tools.timeout.slow-ms", "100"),
+			new OpenRouterMetrics(registry), 2000);
+
+	@AfterEach
+	void shutdown() {
+		pool.shutdownNow();
+	}
+
+	private static ToolCall call(String id, String name) {
+		return new ToolCall(null, id, "function", new ToolCall.FunctionCall(name, "{}"));
+	}
+
+	// A future that notes how it was cancelled
+	private static final class PrefetchedFuture extends CompletableFuture<String> {
+		private volatile Boolean interrupted;
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			interrupted = mayInterruptIfRunning;
+			return super.cancel(mayInterruptIfRunning);
+		}
+	}
+
+	private static ToolPrefetcher.Prefetch prefetchOf(String tool, Future<String> future) {
+		return new ToolPrefetcher.Prefetch() {
+			@Override
+			public Future<String> claim(String name, String argumentsJson) {
+				return name.equals(tool) ? future : null;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+	}
+
+	@Test
+	void resultsKeepCallOrderAndSlowOrFailedToolsAreDegraded() {
+		List<String> results = runner.run(
+				List.of(call("1", "slow"), call("2", "broken"), call("3", "late"), call("4", "quick")), null,
+				(tool, args) -> switch (tool) {
+					case "slow" -> {
+						Thread.sleep(10_000);
+						yield "never";
+					}
+					case "broken" -> throw new IllegalStateException("quota exceeded");
+					case "late" -> {
+						Thread.sleep(300);
+						yield "late result";
+					}
+					default -> "quick result";
+				});
+
+		assertEquals(4, results.size());
+		assertEquals("Tool slow timed out after 100 ms. Answer without this result.", results.get(0));
+		assertEquals("Tool broken failed: quota exceeded. Answer without this result.", results.get(1));
+		assertEquals("late result", results.get(2), "only the slow tool has a 100 ms deadline");
+		assertEquals("quick result", results.get(3));
+		assertEquals(1.0, registry.counter("openrouter.tool.calls", "tool", "slow", "outcome", "timeout").count());
+		assertEquals(1.0, registry.counter("openrouter.tool.calls", "tool", "broken", "outcome", "error").count());
+	}
+
+	@Test
+	void aTimedOutPrefetchIsAbandonedWithoutInterrupting() {
+		PrefetchedFuture prefetched = new PrefetchedFuture();
+
+		List<String> results = runner.run(List.of(call("1", "slow")), prefetchOf("slow", prefetched),
+				(tool, args) -> fail("a claimed prefetch must not run the tool again"));
+
+		assertEquals("Tool slow timed out after 100 ms. Answer without this result.", results.get(0));
+		assertEquals(Boolean.FALSE, prefetched.interrupted);
+	}
+}
@@ -0,0 +1,143 @@
+package com.ai.service;
+
+import com.ai.http.DeadlineInterceptor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamCallPolicyTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final UpstreamLimiter limiter = new UpstreamLimiter(registry, new MockEnvironment(), 16, 2, 0.5,
+			Duration.ZERO, 10, Duration.ofSeconds(1), Duration.ofSeconds(2), 4, Duration.ofMinutes(1));
+
+	private UpstreamCallPolicy policy(double budgetMax) {
+		return new UpstreamCallPolicy(limiter, registry, 3, Duration.ofMillis(1), Duration.ofMillis(5),
+				Duration.ofSeconds(10), 0.1, budgetMax);
+	}
+
+	@Test
+	void retriesTransientFailuresAndHalvesTheLimitOnRateLimits() {
+		AtomicInteger calls = new AtomicInteger();
+
+		String reply = policy(20).execute(() -> {
+			if (calls.incrementAndGet() < 3) throw rateLimited("0");
+			return "ok";
+		});
+
+		assertEquals("ok", reply);
+		assertEquals(3, calls.get());
+		assertEquals(4, limiter.currentLimit());
+		assertEquals(2.0, registry.counter("upstream.retries", "cause", "rate_limited").count());
+	}
+
+	@Test
+	void limitGrowsBackAdditivelyOnSuccess() {
+		assertThrows(HttpStatusCodeException.class, () -> policy(0).execute(() -> {
+			throw rateLimited(null);
+		}));
+		assertEquals(8, limiter.currentLimit());
+
+		UpstreamCallPolicy policy = policy(0);
+		for (int i = 0; i < 10; i++) policy.execute(() -> "ok");
+		assertEquals(9, limiter.currentLimit());
+	}
+
+	@Test
+	void doesNotRetryClientErrorsOrWaitsLongerThanAllowed() {
+		AtomicInteger calls = new AtomicInteger();
+		UpstreamCallPolicy policy = policy(20);
+
+		assertThrows(HttpClientErrorException.class, () -> policy.execute(() -> {
+			calls.incrementAndGet();
+			throw HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "Bad Request", HttpHeaders.EMPTY, null, null);
+		}));
+		assertThrows(HttpClientErrorException.class, () -> policy.execute(() -> {
+			calls.incrementAndGet();
+			throw rateLimited("60");
+		}));
+
+		assertEquals(2, calls.get());
+		assertEquals(1.0, registry.counter("upstream.retries.denied", "reason", "retry_after").count());
+	}
+
+	@Test
+	void emptyBudgetStopsRetries() {
+		AtomicInteger calls = new AtomicInteger();
+
+		assertThrows(HttpServerErrorException.class, () -> policy(0.5).execute(() -> {
+			calls.incrementAndGet();
+			throw HttpServerErrorException.create(HttpStatus.BAD_GATEWAY, "Bad Gateway", HttpHeaders.EMPTY, null, null);
+		}));
+
+		assertEquals(1, calls.get());
+		assertEquals(1.0, registry.counter("upstream.retries.denied", "reason", "budget").count());
+	}
+
+	@Test
+	void noRetryOnceTheCallerSaysItWouldBeVisible() {
+		AtomicInteger calls = new AtomicInteger();
+
+		assertThrows(HttpServerErrorException.class, () -> policy(20).execute(() -> {
+			calls.incrementAndGet();
+			throw HttpServerErrorException.create(HttpStatus.BAD_GATEWAY, "Bad Gateway", HttpHeaders.EMPTY, null, null);
+		}, () -> false));
+
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	void aCallCutOffAtTheTotalTimeoutIsAnOverloadAndIsNotRetried() {
+		ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor();
+		DeadlineInterceptor interceptor = new DeadlineInterceptor(Duration.ofMillis(50), watchdog);
+		AtomicInteger calls = new AtomicInteger();
+
+		try {
+			// What the JDK request factory throws when a hung exchange is interrupted
+			ResourceAccessException e = assertThrows(ResourceAccessException.class, () -> policy(20).execute(() -> {
+				calls.incrementAndGet();
+				try {
+					return interceptor.intercept(new MockClientHttpRequest(), new byte[0], (request, body) -> {
+						try {
+							Thread.sleep(10_000);
+						} catch (InterruptedException ie) {
+							Thread.currentThread().interrupt();
+							throw new IOException("Request interrupted", ie);
+						}
+						throw new IllegalStateException("watchdog never fired");
+					});
+				} catch (IOException io) {
+					throw new ResourceAccessException(io.getMessage(), io);
+				}
+			}));
+
+			assertEquals("timeout", UpstreamCallPolicy.retryCause(e));
+			assertEquals(1, calls.get());
+			assertEquals(8, limiter.currentLimit());
+			assertFalse(Thread.currentThread().isInterrupted());
+		} finally {
+			watchdog.shutdownNow();
+		}
+	}
+
+	private static HttpClientErrorException rateLimited(String retryAfter) {
+		HttpHeaders headers = new HttpHeaders();
+		if (retryAfter != null) headers.set(HttpHeaders.RETRY_AFTER, retryAfter);
+		return HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", headers, null, null);
+	}
+}
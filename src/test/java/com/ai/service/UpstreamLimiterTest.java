@@ -0,0 +1,159 @@
+package com.ai.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamLimiterTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final List<String> granted = Collections.synchronizedList(new ArrayList<>());
+	private final ExecutorService callers = Executors.newCachedThreadPool();
+
+	@AfterEach
+	void shutdown() {
+		callers.shutdownNow();
+	}
+
+	private UpstreamLimiter limiter(int slots, int maxPerSession) {
+		MockEnvironment environment = new MockEnvironment()
+				.withProperty("upstream.scheduler.weight.general", "3")
+				.withProperty("upstream.scheduler.weight.mcq", "1");
+		return new UpstreamLimiter(registry, environment, slots, slots, 0.5, Duration.ZERO,
+				100, Duration.ofSeconds(5), Duration.ofSeconds(1), maxPerSession, Duration.ofMinutes(1));
+	}
+
+	// Waits for a slot, notes who got it, and hands it straight on
+	private CompletableFuture<Void> queue(UpstreamLimiter limiter, UpstreamLimiter.Ticket ticket, String name) {
+		return CompletableFuture.runAsync(() -> {
+			try (UpstreamLimiter.Permit permit = limiter.acquire(ticket)) {
+				granted.add(name);
+			}
+		}, callers);
+	}
+
+	private void awaitWaiting(int count) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (registry.get("upstream.limiter.waiting").gauge().value() < count) {
+			assertTrue(System.nanoTime() < deadline, "waiters never queued");
+			Thread.sleep(5);
+		}
+	}
+
+	@Test
+	void queuedModesShareSlotsByWeight() throws Exception {
+		UpstreamLimiter limiter = limiter(1, 4);
+		UpstreamLimiter.Permit held = limiter.acquire();
+
+		List<CompletableFuture<Void>> all = new ArrayList<>();
+		for (int i = 0; i < 4; i++) all.add(queue(limiter, limiter.ticket("mcq", "m" + i), "mcq"));
+		awaitWaiting(4);
+		for (int i = 0; i < 4; i++) all.add(queue(limiter, limiter.ticket("general", "g" + i), "chat"));
+		awaitWaiting(8);
+
+		held.close();
+		CompletableFuture.allOf(all.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+		// A 3:1 weight lets at least three chat turns through in the first four slots
+		assertTrue(Collections.frequency(granted.subList(0, 4), "chat") >= 3, granted.toString());
+		assertEquals(8, granted.size());
+	}
+
+	@Test
+	void sessionsTakeTurnsWithinAMode() throws Exception {
+		UpstreamLimiter limiter = limiter(1, 4);
+		UpstreamLimiter.Permit held = limiter.acquire();
+
+		List<CompletableFuture<Void>> all = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			all.add(queue(limiter, limiter.ticket("mcq", "busy"), "busy"));
+			awaitWaiting(i + 1);
+		}
+		all.add(queue(limiter, limiter.ticket("mcq", "quiet"), "quiet"));
+		awaitWaiting(4);
+
+		held.close();
+		CompletableFuture.allOf(all.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+		assertEquals(List.of("busy", "quiet", "busy", "busy"), granted);
+	}
+
+	@Test
+	void oneSessionCannotTakeEverySlot() throws Exception {
+		UpstreamLimiter limiter = limiter(2, 1);
+		UpstreamLimiter.Permit first = limiter.acquire(limiter.ticket("general", "greedy"));
+
+		CompletableFuture<Void> second = queue(limiter, limiter.ticket("general", "greedy"), "greedy");
+		awaitWaiting(1);
+		CompletableFuture<Void> other = queue(limiter, limiter.ticket("general", "other"), "other");
+
+		other.get(5, TimeUnit.SECONDS);
+		assertEquals(List.of("other"), granted);
+		assertFalse(second.isDone());
+
+		first.close();
+		second.get(5, TimeUnit.SECONDS);
+		assertEquals(List.of("other", "greedy"), granted);
+	}
+
+	@Test
+	void oneSessionsBatchLeavesSlotsForOtherSessions() throws Exception {
+		UpstreamLimiter limiter = limiter(4, 2);
+		CountDownLatch finish = new CountDownLatch(1);
+
+		// Chunk calls of one batch hold their slots until released
+		List<CompletableFuture<Void>> chunks = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			chunks.add(CompletableFuture.runAsync(() -> {
+				try (UpstreamLimiter.Permit permit = limiter.acquire(limiter.ticket("mcq", "batch"))) {
+					granted.add("batch");
+					finish.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}, callers));
+		}
+		awaitWaiting(4);
+		assertEquals(2, registry.get("upstream.limiter.in-flight").gauge().value());
+
+		queue(limiter, limiter.ticket("mcq", "other"), "other").get(5, TimeUnit.SECONDS);
+		assertEquals(1, Collections.frequency(granted, "other"));
+
+		finish.countDown();
+		CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+		assertEquals(6, Collections.frequency(granted, "batch"));
+	}
+
+	@Test
+	void callsWhoseClientGaveUpAreDropped() throws Exception {
+		UpstreamLimiter limiter = limiter(1, 4);
+		UpstreamLimiter.Permit held = limiter.acquire();
+
+		UpstreamLimiter.Ticket impatient = new UpstreamLimiter.Ticket("general", "impatient",
+				System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500));
+		CompletableFuture<Void> dropped = queue(limiter, impatient, "impatient");
+		awaitWaiting(1);
+		CompletableFuture<Void> patient = queue(limiter, limiter.ticket("general", "patient"), "patient");
+
+		Exception e = assertThrows(Exception.class, () -> dropped.get(5, TimeUnit.SECONDS));
+		assertInstanceOf(UpstreamOverloadedException.class, e.getCause());
+		assertEquals(1.0, registry.counter("upstream.limiter.rejections", "mode", "general", "reason", "deadline").count());
+
+		held.close();
+		patient.get(5, TimeUnit.SECONDS);
+		assertEquals(List.of("patient"), granted);
+	}
+}
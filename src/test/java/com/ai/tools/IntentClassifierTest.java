@@ -0,0 +1,34 @@
+package com.ai.tools;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntentClassifierTest {
+
+	@Test
+	void videoWordsPredictYouTubeWithTheContentWordsAsQuery() {
+		IntentClassifier.Intent intent = IntentClassifier.classify("Can you show me a good video tutorial on Java streams?");
+
+		assertEquals("youtubeSearch", intent.tool());
+		assertEquals("tutorial java streams", intent.query());
+	}
+
+	@Test
+	void freshnessWordsPredictGoogleAndPlainQuestionsPredictNothing() {
+		assertEquals("googleSearch", IntentClassifier.classify("What's the latest Spring Boot release?").tool());
+		assertEquals("googleSearch", IntentClassifier.classify("AI news today").tool());
+		assertNull(IntentClassifier.classify("Explain how a hash map works"));
+		assertNull(IntentClassifier.classify("  "));
+	}
+
+	@Test
+	void modelQueriesAreMatchedByContentWordOverlap() {
+		String predicted = IntentClassifier.classify("show me videos about java streams tutorial").query();
+
+		assertEquals(1.0, IntentClassifier.similarity(predicted, "Java Streams tutorial"));
+		assertTrue(IntentClassifier.similarity(predicted, "java streams") >= 0.5);
+		assertTrue(IntentClassifier.similarity(predicted, "python decorators explained") < 0.5);
+		assertEquals(0.0, IntentClassifier.similarity(predicted, ""));
+	}
+}
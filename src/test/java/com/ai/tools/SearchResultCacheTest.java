@@ -0,0 +1,102 @@
+package com.ai.tools;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchResultCacheTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final SearchResultCache cache = new SearchResultCache(registry, Duration.ofMinutes(5), 100);
+
+	@Test
+	void normalizedQueriesShareOneEntry() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+
+		cache.get("googleSearch", "Java Streams tutorial", q -> "result-" + calls.incrementAndGet());
+		String second = cache.get("googleSearch", "  a java   STREAMS tutorial? ", q -> "result-" + calls.incrementAndGet());
+
+		assertEquals("result-1", second);
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	void concurrentIdenticalLookupsCollapseIntoOneLoad() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+
+		try {
+			Future<?>[] futures = new Future<?>[8];
+			for (int i = 0; i < futures.length; i++) {
+				futures[i] = pool.submit(() -> cache.get("youtubeSearch", "spring boot", q -> {
+					calls.incrementAndGet();
+					release.await();
+					return "videos";
+				}));
+			}
+			Thread.sleep(100);
+			release.countDown();
+
+			for (Future<?> f : futures) {
+				assertEquals("videos", f.get());
+			}
+			assertEquals(1, calls.get());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	void failuresAreNotCached() throws Exception {
+		assertThrows(IllegalStateException.class, () ->
+				cache.get("googleSearch", "quota", q -> { throw new IllegalStateException("403"); }));
+
+		assertEquals("ok", cache.get("googleSearch", "quota", q -> "ok"));
+	}
+
+	@Test
+	void aTimedOutLeaderDoesNotFailTheCallersThatJoinedIt() throws Exception {
+		CountDownLatch leaderStarted = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+
+		try {
+			Future<String> leader = pool.submit(() -> cache.get("googleSearch", "spring boot", q -> {
+				leaderStarted.countDown();
+				new CountDownLatch(1).await();
+				return "never";
+			}));
+			assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+
+			Future<String> joiner = pool.submit(() -> cache.get("googleSearch", "Spring Boot?", q -> "results"));
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while (registry.counter("tools.cache.requests", "tool", "googleSearch", "result", "coalesced").count() < 1) {
+				assertTrue(System.nanoTime() < deadline, "joiner never joined the load");
+				Thread.sleep(5);
+			}
+
+			// What a tool timeout does to the caller running the load
+			leader.cancel(true);
+
+			assertEquals("results", joiner.get(5, TimeUnit.SECONDS));
+			assertEquals("results", cache.get("googleSearch", "spring boot", q -> "reloaded"));
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	void stopwordOnlyQueriesKeepAKey() {
+		assertEquals("what is", QueryNormalizer.normalize("What is?"));
+		assertEquals("c++ vs java", QueryNormalizer.normalize("C++ vs. Java"));
+	}
+}